@@ -0,0 +1,107 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of checking the color of a digit in the output of the fancy plugin, as
+ * ColorsTest does: with the regexes it used to match against the whole output
+ * and against a row (matchAnyColor and matchDigitInColumn), and by parsing the
+ * output into BoardFrames and reading the square (parseFrames). The output
+ * comes from MinesweeperOracle on a board of the given size, after revealing
+ * the square 2 2.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorsPatternBenchmark {
+
+    // What ColorsTest did before BoardFrame
+    private final static Pattern matchAnyColor = Pattern.compile(".*" + "\\u001B\\[[;\\d]*m" + ".*");
+    private final static String ESCAPED_RESET = "\\u001B\\[0m";
+
+    @Param({ "3", "20" })
+    public int size;
+
+    private MethodHandle newExecutionResult;
+    private MethodHandle getFrames;
+    private MethodHandle getCell;
+    private MethodHandle isColoredDigit;
+    private String escapedColor;
+    private String stdOut;
+    private String targetLine;
+    private int digit;
+    private int column;
+
+    @Setup
+    public void setup() throws Throwable {
+        Class<?> cell = Harness.load("BoardFrame$Cell");
+        newExecutionResult = Harness.findConstructor("ExecutionResult", int.class, String.class, String.class);
+        getFrames = Harness.findVirtual("ExecutionResult", "getFrames", List.class);
+        getCell = Harness.findVirtual("BoardFrame", "getCell", cell, int.class, int.class);
+        isColoredDigit = Harness.findStatic("ColorsTest", "isColoredDigit", boolean.class, cell, int.class);
+
+        // Mines in two corners, so the square 2 2 shows a number
+        String[] board = new String[size];
+        Arrays.fill(board, ".".repeat(size));
+        board[0] = "*" + ".".repeat(size - 1);
+        board[size - 1] = ".".repeat(size - 1) + "*";
+        digit = size <= 3 ? 2 : 1;
+        column = 2;
+        escapedColor = "\\u001B\\["
+                + Harness.findStatic("ColorsTest", "getColorOfDigit", String.class, int.class).invoke(digit) + "m";
+
+        Object game = Harness.load("MinesweeperOracle").getConstructor(List.class).newInstance(Arrays.asList(board));
+        Harness.findVirtual("MinesweeperOracle", "setFancy", void.class, String.class, String.class).invoke(game,
+                "M", "F");
+        StringBuilder out = new StringBuilder();
+        Harness.findVirtual("MinesweeperOracle", "play", void.class, StringBuilder.class, Iterator.class)
+                .invoke(game, out, Arrays.asList("2 2 R").iterator());
+        stdOut = out.toString();
+
+        // Row 2 of the second frame
+        targetLine = stdOut.split("\n")[(2 * size + 1 + 3) + 3];
+        if (!matchAnyColor() || !matchDigitInColumn() || !parseFrames()) {
+            throw new IllegalStateException("ColorsTest does not match:\n" + stdOut);
+        }
+    }
+
+    @Benchmark
+    public boolean matchAnyColor() {
+        return matchAnyColor.matcher(stdOut.replaceAll("\\n", " ")).matches();
+    }
+
+    @Benchmark
+    public boolean matchDigitInColumn() {
+        String thePattern = "^" + "│.*".repeat(column - 1) + //
+                "│.*" + escapedColor + ".*" + digit + ".*" + ESCAPED_RESET + ".*│" + //
+                ".*" + "$";
+        return Pattern.compile(thePattern).matcher(targetLine).matches();
+    }
+
+    @Benchmark
+    public boolean parseFrames() throws Throwable {
+        Object frame = ((List<?>) getFrames.invoke(newExecutionResult.invoke(0, stdOut, ""))).get(1);
+        return (boolean) isColoredDigit.invoke(getCell.invoke(frame, 2, column), digit);
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of writing and deleting config.ini around each test of ColorsTest and
+ * FancyTest, i.e., their @Before and @After methods. MINESWEEPER_HOME is a
+ * temporary folder, so nothing needs to be set.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigIniBenchmark {
+
+    @Param({ "ColorsTest", "FancyTest" })
+    public String testClass;
+
+    private File minesweeperHome;
+    private Object test;
+    private MethodHandle createFancyConfigIni;
+    private MethodHandle deleteFancyConfigIni;
+
+    @Setup
+    public void setup() throws Exception {
+        minesweeperHome = Files.createTempDirectory("benchmark-home").toFile();
+        System.setProperty((String) Harness.getStatic("MinesweeperTestUtils", "MINESWEEPER_HOME"),
+                minesweeperHome.getAbsolutePath());
+        test = Harness.newInstance(testClass);
+        createFancyConfigIni = Harness.findVirtual(testClass, "createFancyConfigIni", void.class);
+        deleteFancyConfigIni = Harness.findVirtual(testClass, "deleteFancyConfigIni", void.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        new File(minesweeperHome, "config.ini").delete();
+        minesweeperHome.delete();
+    }
+
+    @Benchmark
+    public void rewriteConfigIni() throws Throwable {
+        createFancyConfigIni.invoke(test);
+        deleteFancyConfigIni.invoke(test);
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of MinesweeperTestUtils.execute for each execution mode, i.e., what a
+ * test pays to run the Minesweeper in MINESWEEPER_HOME on a small board with a
+ * few moves. Pass -Dminesweeper.home (and -Dminesweeper.name, if needed) as for
+ * the tests. On JVMs newer than 17 the in-process mode also needs
+ * -Djava.security.manager=allow.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionBenchmark {
+
+    // Values of MinesweeperTestUtils.EXECUTION_MODE
+    @Param({ "fork", "in-process", "pool", "worker" })
+    public String executionMode;
+
+    private MethodHandle execute;
+    private File boardCfgFile;
+    private List<String> inputSequence;
+
+    @Setup
+    public void setup() throws Throwable {
+        if (Harness.findStatic("MinesweeperTestUtils", "getMinesweeper", String.class).invoke() == null) {
+            throw new IllegalStateException("MINESWEEPER_HOME is not set, use -Dminesweeper.home");
+        }
+        if ("in-process".equals(executionMode)
+                && !(boolean) Harness.findStatic("InProcessMinesweeper", "isSupported", boolean.class).invoke()) {
+            throw new IllegalStateException("Cannot trap System.exit, use -Djava.security.manager=allow");
+        }
+        System.setProperty((String) Harness.getStatic("MinesweeperTestUtils", "EXECUTION_MODE"), executionMode);
+        execute = Harness.findStatic("MinesweeperTestUtils", "execute", Harness.load("ExecutionResult"), List.class,
+                List.class, int.class);
+
+        boardCfgFile = File.createTempFile("benchmark", ".cfg");
+        Files.write(boardCfgFile.toPath(), Arrays.asList("..*", "...", "..."));
+        inputSequence = Arrays.asList("1 1 F", "1 1 F", "3 1 R");
+    }
+
+    @TearDown
+    public void tearDown() {
+        boardCfgFile.delete();
+    }
+
+    @Benchmark
+    public Object execute() throws Throwable {
+        return execute.invoke(Collections.singletonList(boardCfgFile), inputSequence, 2);
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Access to the classes of the harness in ../java. They are in the default
+ * package, which code in a package cannot reference, and JMH does not accept
+ * benchmarks in the default package, so benchmarks look up method handles once
+ * in their setup and invoke them in the benchmark methods.
+ *
+ */
+final class Harness {
+
+    private Harness() {
+    }
+
+    static Class<?> load(String className) throws ClassNotFoundException {
+        return Class.forName(className);
+    }
+
+    static MethodHandle findStatic(String className, String name, Class<?> returnType, Class<?>... parameterTypes)
+            throws ReflectiveOperationException {
+        return MethodHandles.publicLookup().findStatic(load(className), name,
+                MethodType.methodType(returnType, parameterTypes));
+    }
+
+    static MethodHandle findVirtual(String className, String name, Class<?> returnType, Class<?>... parameterTypes)
+            throws ReflectiveOperationException {
+        return MethodHandles.publicLookup().findVirtual(load(className), name,
+                MethodType.methodType(returnType, parameterTypes));
+    }
+
+    static MethodHandle findConstructor(String className, Class<?>... parameterTypes)
+            throws ReflectiveOperationException {
+        return MethodHandles.publicLookup().findConstructor(load(className),
+                MethodType.methodType(void.class, parameterTypes));
+    }
+
+    static Object getStatic(String className, String name) throws ReflectiveOperationException {
+        return load(className).getField(name).get(null);
+    }
+
+    static Object newInstance(String className) throws ReflectiveOperationException {
+        return load(className).getConstructor().newInstance();
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of ScenarioTest.data(), i.e., loading the scenarios before ScenarioTest
+ * runs, with the index of ScenarioCorpus already up to date (warm) or missing
+ * (cold). The scenarios are those in -Dtest.scenarios, ../test_scenarios by
+ * default.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScenarioDataBenchmark {
+
+    @Param({ "warm", "cold" })
+    public String index;
+
+    private MethodHandle data;
+    private File indexFile;
+
+    @Setup
+    public void setup() throws Throwable {
+        File scenarios = new File(System.getProperty("test.scenarios", "../test_scenarios"));
+        if (!scenarios.isDirectory()) {
+            throw new IllegalStateException("Cannot find the scenarios in " + scenarios.getAbsolutePath());
+        }
+        indexFile = new File(scenarios, (String) Harness.getStatic("ScenarioCorpus", "INDEX_FILE"));
+        data = Harness.findStatic("ScenarioTest", "data", Collection.class);
+        // Build the index once
+        data.invoke();
+    }
+
+    @Setup(Level.Invocation)
+    public void dropIndex() {
+        if ("cold".equals(index)) {
+            indexFile.delete();
+        }
+    }
+
+    @Benchmark
+    public Object data() throws Throwable {
+        return data.invoke();
+    }
+}
@@ -43,6 +43,9 @@ public class BasicFancyTest {
     @Rule
     public TemporaryFolder tempFolder = new TemporaryFolder();
 
+    @Rule
+    public MinesweeperSandbox sandbox = new MinesweeperSandbox();
+
     @BeforeClass
     public static void checkPrecondition() {
         /*
@@ -53,7 +56,7 @@ public class BasicFancyTest {
 
     @Before
     public void createFancyConfigIni() throws FileNotFoundException {
-        File configIni = new File(MinesweeperTestUtils.getMinesweeper(), "config.ini");
+        File configIni = new File(MinesweeperTestUtils.getMinesweeperHome(), "config.ini");
         if (configIni.exists()) {
             boolean deleted = configIni.delete();
             if (!deleted) {
@@ -70,7 +73,7 @@ public class BasicFancyTest {
 
     @After
     public void deleteFancyConfigIni() {
-        File configIni = new File(MinesweeperTestUtils.getMinesweeper(), "config.ini");
+        File configIni = new File(MinesweeperTestUtils.getMinesweeperHome(), "config.ini");
         if (configIni.exists()) {
             boolean deleted = configIni.delete();
             if (!deleted) {
@@ -20,6 +20,7 @@ import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.After;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -41,6 +42,9 @@ public class BasicTest {
     @Rule
     public TemporaryFolder tempFolder = new TemporaryFolder();
 
+    @Rule
+    public MinesweeperSandbox sandbox = new MinesweeperSandbox();
+
     @BeforeClass
     public static void checkPrecondition() {
         /*
@@ -51,7 +55,7 @@ public class BasicTest {
 
     @Before
     public void createDefatulConfigIni() throws FileNotFoundException {
-        File configIni = new File(MinesweeperTestUtils.getMinesweeper(), "config.ini");
+        File configIni = new File(MinesweeperTestUtils.getMinesweeperHome(), "config.ini");
         if (configIni.exists()) {
             boolean deleted = configIni.delete();
             if (!deleted) {
@@ -66,7 +70,7 @@ public class BasicTest {
 
     @After
     public void deleteDefatulConfigIni() {
-        File configIni = new File(MinesweeperTestUtils.getMinesweeper(), "config.ini");
+        File configIni = new File(MinesweeperTestUtils.getMinesweeperHome(), "config.ini");
         if (configIni.exists()) {
             boolean deleted = configIni.delete();
             if (!deleted) {
@@ -113,6 +117,35 @@ public class BasicTest {
                 Matchers.not(blankOrNullString()));
     }
 
+    @Test(timeout = 3000)
+    public void testThatEachInteractiveInputIsAnswered() throws Exception {
+        // Only executions in their own process can be driven input by input
+        Assume.assumeFalse("Inputs are not sent one by one in this execution mode",
+                MinesweeperTestUtils.IN_PROCESS_EXECUTION.equals(MinesweeperTestUtils.getExecutionMode())
+                        || MinesweeperTestUtils.WORKER_EXECUTION.equals(MinesweeperTestUtils.getExecutionMode()));
+
+        final File boardCfgFile = tempFolder.newFile("simple.cfg");
+        try (PrintWriter out = new PrintWriter(boardCfgFile)) {
+            out.println("..*");
+            out.println("...");
+            out.println("...");
+        }
+
+        // Flagging does not end the game, so Minesweeper answers every input
+        List<String> inputSequence = new ArrayList<String>();
+        inputSequence.add("2 2 F");
+        inputSequence.add("3 3 F");
+        inputSequence.add("2 2 F");
+
+        ExecutionResult result = MinesweeperTestUtils.interact(Collections.singletonList(boardCfgFile),
+                inputSequence, 2);
+
+        Assert.assertEquals(MinesweeperTestUtils.MINESWEEPER_CLASS_NAME + " did not exit normally. Error message: "
+                + result.getStdError() + "\n", 0, result.getExitCode());
+        Assert.assertEquals("Not every input was answered with a frame", inputSequence.size(),
+                result.getMoveLatencies().size());
+    }
+
     @Test(timeout = 3000)
     public void testNoConfigurationPassed() throws Exception {
         Map<String, Object> result = MinesweeperTestUtils.execute(null, Collections.emptyList());
@@ -0,0 +1,313 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A board printed by Minesweeper, followed by its message box. parse() splits
+ * the output of an execution into frames in one pass over its lines, so tests
+ * can check the symbol and the color of a square without matching regexes
+ * against whole lines. </br>
+ *
+ * A frame starts with the top border of the board (possibly after the ">"
+ * prompt) and ends with the bottom of the message box. Each square is the
+ * content between two "│" without its padding, and keeps the ANSI style (SGR
+ * parameters, e.g., "32" for green) that was active when its symbol was
+ * printed. Lines that are not part of a board or a message box are ignored.
+ *
+ */
+public class BoardFrame {
+
+    private final static char ESCAPE = '\u001B';
+
+    // Most squares show a single ASCII symbol, so they share their strings
+    private final static String[] ASCII = new String[128];
+
+    static {
+        for (char c = 0; c < ASCII.length; c++) {
+            ASCII[c] = String.valueOf(c);
+        }
+    }
+
+    /**
+     * A square of the board, as printed
+     */
+    public static final class Cell {
+
+        private final String symbol;
+        private final String style;
+        private final boolean styleReset;
+
+        Cell(String symbol, String style, boolean styleReset) {
+            this.symbol = symbol;
+            this.style = style;
+            this.styleReset = styleReset;
+        }
+
+        /**
+         * @return the content of the square without its padding, " " if the square
+         *         is empty
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+
+        /**
+         * @return the SGR parameters active when the symbol was printed, e.g., "34",
+         *         or null if the symbol has no style
+         */
+        public String getStyle() {
+            return style;
+        }
+
+        public boolean isStyled() {
+            return style != null;
+        }
+
+        /**
+         * @return whether the style is reset after the symbol, anywhere before the
+         *         end of its row (always true if the symbol has no style)
+         */
+        public boolean isStyleReset() {
+            return styleReset;
+        }
+
+        @Override
+        public String toString() {
+            return style == null ? symbol : ESCAPE + "[" + style + "m" + symbol + ESCAPE + "[0m";
+        }
+    }
+
+    private final boolean prompted;
+    private final List<Cell[]> rows = new ArrayList<Cell[]>();
+    private String banner;
+
+    private BoardFrame(boolean prompted) {
+        this.prompted = prompted;
+    }
+
+    /**
+     * @return whether the ">" prompt precedes the board
+     */
+    public boolean isPrompted() {
+        return prompted;
+    }
+
+    public int getRows() {
+        return rows.size();
+    }
+
+    public int getColumns() {
+        return rows.isEmpty() ? 0 : rows.get(0).length;
+    }
+
+    /**
+     * Return the square at the given position, which starts from 1 like the
+     * inputs of Minesweeper.
+     *
+     * @param row
+     * @param column
+     * @return
+     * @throws IndexOutOfBoundsException if the board has no such square
+     */
+    public Cell getCell(int row, int column) {
+        Cell[] cells = rows.get(row - 1);
+        if (column < 1 || column > cells.length) {
+            throw new IndexOutOfBoundsException("Row " + row + " has " + cells.length + " squares, not " + column);
+        }
+        return cells[column - 1];
+    }
+
+    /**
+     * @return whether any square has a style
+     */
+    public boolean isStyled() {
+        for (Cell[] cells : rows) {
+            for (Cell cell : cells) {
+                if (cell.isStyled()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the message in the message box without its padding, or null if the
+     *         frame has no message box
+     */
+    public String getBanner() {
+        return banner;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Cell[] cells : rows) {
+            for (Cell cell : cells) {
+                builder.append('│').append(cell);
+            }
+            builder.append('│').append(System.lineSeparator());
+        }
+        return builder.append(banner).toString();
+    }
+
+    /**
+     * Split the given lines of the output of Minesweeper into frames.
+     *
+     * @param lines
+     * @return the frames in the order they were printed. The last frame might miss
+     *         its message box, or part of its board, if the output ended early
+     */
+    public static List<BoardFrame> parse(List<? extends CharSequence> lines) {
+        List<BoardFrame> frames = new ArrayList<BoardFrame>();
+        BoardFrame frame = null;
+        for (CharSequence line : lines) {
+            frame = parseLine(frames, frame, line, 0, line.length());
+        }
+        return Collections.unmodifiableList(frames);
+    }
+
+    /**
+     * Same as parse(lines), for lines that are ranges of the given text, so they
+     * do not need to be copied.
+     *
+     * @param text
+     * @param lineStarts
+     * @param lineEnds
+     * @return
+     */
+    static List<BoardFrame> parse(String text, int[] lineStarts, int[] lineEnds) {
+        List<BoardFrame> frames = new ArrayList<BoardFrame>();
+        BoardFrame frame = null;
+        for (int i = 0; i < lineStarts.length; i++) {
+            frame = parseLine(frames, frame, text, lineStarts[i], lineEnds[i]);
+        }
+        return Collections.unmodifiableList(frames);
+    }
+
+    /**
+     * Parse the line between from and to, which belongs to the given frame
+     *
+     * @return the frame that the next line belongs to, null if none
+     */
+    private static BoardFrame parseLine(List<BoardFrame> frames, BoardFrame frame, CharSequence text, int from,
+            int to) {
+        boolean prompted = false;
+        while (from < to && (text.charAt(from) == '>' || text.charAt(from) == ' ')) {
+            prompted |= text.charAt(from) == '>';
+            from++;
+        }
+        if (from == to) {
+            return frame;
+        }
+
+        switch (text.charAt(from)) {
+        case '┌':
+            // A board without message box is over as well
+            frame = new BoardFrame(prompted);
+            frames.add(frame);
+            return frame;
+        case '│':
+            if (frame != null && frame.banner == null) {
+                frame.rows.add(parseRow(text, from + 1, to, frame.getColumns()));
+            }
+            return frame;
+        case '║':
+            if (frame != null) {
+                String message = strip(text, from + 1, lastIndexOf(text, '║', from + 1, to));
+                frame.banner = frame.banner == null ? message : frame.banner + System.lineSeparator() + message;
+            }
+            return frame;
+        case '╚':
+            return null;
+        default:
+            // Borders, and whatever else Minesweeper prints
+            return frame;
+        }
+    }
+
+    private static Cell[] parseRow(CharSequence text, int from, int to, int columns) {
+        List<String> symbols = new ArrayList<String>(Math.max(columns, 1));
+        List<String> styles = new ArrayList<String>(Math.max(columns, 1));
+        // The squares before this index have a reset after their symbol
+        int resetSquares = 0;
+        String activeStyle = null;
+        // The symbol of the current square goes from first to last, both included
+        String symbolStyle = null;
+        int first = -1;
+        int last = -1;
+        boolean escaped = false;
+        boolean escapedInside = false;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == ESCAPE && i + 1 < to && text.charAt(i + 1) == '[') {
+                int end = i + 2;
+                while (end < to && text.charAt(end) != 'm') {
+                    end++;
+                }
+                activeStyle = end == i + 2 || (end == i + 3 && text.charAt(i + 2) == '0') ? null
+                        : text.subSequence(i + 2, end).toString();
+                if (activeStyle == null) {
+                    resetSquares = symbols.size() + (first >= 0 ? 1 : 0);
+                }
+                escaped = first >= 0;
+                i = end;
+            } else if (c == '│') {
+                String symbol;
+                if (first < 0) {
+                    symbol = " ";
+                } else if (escapedInside) {
+                    symbol = strip(text, first, last + 1);
+                } else if (first == last && text.charAt(first) < ASCII.length) {
+                    symbol = ASCII[text.charAt(first)];
+                } else {
+                    symbol = text.subSequence(first, last + 1).toString();
+                }
+                symbols.add(symbol);
+                styles.add(symbolStyle);
+                symbolStyle = null;
+                first = -1;
+                last = -1;
+                escaped = false;
+                escapedInside = false;
+            } else if (c != ' ') {
+                if (first < 0) {
+                    first = i;
+                    symbolStyle = activeStyle;
+                }
+                escapedInside |= escaped;
+                last = i;
+            }
+        }
+        Cell[] cells = new Cell[symbols.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new Cell(symbols.get(i), styles.get(i), styles.get(i) == null || i < resetSquares);
+        }
+        return cells;
+    }
+
+    // The text between from and to, without escape sequences and trailing spaces
+    private static String strip(CharSequence text, int from, int to) {
+        StringBuilder stripped = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == ESCAPE && i + 1 < to && text.charAt(i + 1) == '[') {
+                while (i < to && text.charAt(i) != 'm') {
+                    i++;
+                }
+            } else {
+                stripped.append(c);
+            }
+        }
+        return stripped.toString().stripTrailing();
+    }
+
+    private static int lastIndexOf(CharSequence text, char c, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+}
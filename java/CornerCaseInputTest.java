@@ -3,7 +3,6 @@ import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -18,6 +17,9 @@ public class CornerCaseInputTest {
     @Rule
     public TemporaryFolder tempFolder = new TemporaryFolder();
 
+    @Rule
+    public MinesweeperSandbox sandbox = new MinesweeperSandbox();
+
     @BeforeClass
     public static void checkPrecondition() {
         /*
@@ -28,7 +30,7 @@ public class CornerCaseInputTest {
 
     @Before
     public void createDefatulConfigIni() throws FileNotFoundException {
-        File configIni = new File(MinesweeperTestUtils.getMinesweeper(), "config.ini");
+        File configIni = new File(MinesweeperTestUtils.getMinesweeperHome(), "config.ini");
         try (PrintWriter pw = new PrintWriter(configIni)) {
             pw.println("plugin-name=default");
         }
@@ -36,7 +38,7 @@ public class CornerCaseInputTest {
 
     @After
     public void deleteDefatulConfigIni() {
-        File configIni = new File(MinesweeperTestUtils.getMinesweeper(), "config.ini");
+        File configIni = new File(MinesweeperTestUtils.getMinesweeperHome(), "config.ini");
         if (configIni.exists()) {
             boolean deleted = configIni.delete();
             if (!deleted) {
@@ -69,11 +71,10 @@ public class CornerCaseInputTest {
 
         // Execute Minesweeper in a separate process starting it with the boardCfgFile
         // and passing the inputSequence
-        Map<String, Object> result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
+        ExecutionResult result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
 
-        int exitCode = (Integer) result.get("exitCode");
-        String stdOut = (String) result.get("stdOut");
-        String stdError = (String) result.get("stdError");
+        int exitCode = result.getExitCode();
+        String stdError = result.getStdError();
 
         // Assertions
 
@@ -81,11 +82,9 @@ public class CornerCaseInputTest {
                 + stdError + "\n", 0, exitCode);
 
         // The last three lines of the output must look like this:
-        String[] lines = stdOut.split("\n");
-
-        String messageBannerFirstLine = lines[lines.length - 3];
-        String messageBannerSecondLine = lines[lines.length - 2];
-        String messageBannerThirdLine = lines[lines.length - 1];
+        String messageBannerFirstLine = result.getLineFromEnd(3);
+        String messageBannerSecondLine = result.getLineFromEnd(2);
+        String messageBannerThirdLine = result.getLineFromEnd(1);
 
         //
 
@@ -121,11 +120,10 @@ public class CornerCaseInputTest {
 
         // Execute Minesweeper in a separate process starting it with the boardCfgFile
         // and passing the inputSequence
-        Map<String, Object> result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
+        ExecutionResult result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
 
-        int exitCode = (Integer) result.get("exitCode");
-        String stdOut = (String) result.get("stdOut");
-        String stdError = (String) result.get("stdError");
+        int exitCode = result.getExitCode();
+        String stdError = result.getStdError();
 
         // Assertions
 
@@ -133,12 +131,10 @@ public class CornerCaseInputTest {
                 + stdError + "\n", 0, exitCode);
 
         // The last three lines of the output must look like this:
-        String[] lines = stdOut.split("\n");
-
-        // -3 because the message banner takes always 3 lines
-        String boardFirstLine = lines[lines.length - 3 - 3];
-        String boardSecondLine = lines[lines.length - 2 - 3];
-        String boardThirdLine = lines[lines.length - 1 - 3];
+        // +3 because the message banner takes always 3 lines
+        String boardFirstLine = result.getLineFromEnd(3 + 3);
+        String boardSecondLine = result.getLineFromEnd(2 + 3);
+        String boardThirdLine = result.getLineFromEnd(1 + 3);
 
         // Note that because the console does not introduce a new line the first line in
         // the tests show the char '>'
@@ -173,11 +169,10 @@ public class CornerCaseInputTest {
 
         // Execute Minesweeper in a separate process starting it with the boardCfgFile
         // and passing the inputSequence
-        Map<String, Object> result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
+        ExecutionResult result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
 
-        int exitCode = (Integer) result.get("exitCode");
-        String stdOut = (String) result.get("stdOut");
-        String stdError = (String) result.get("stdError");
+        int exitCode = result.getExitCode();
+        String stdError = result.getStdError();
 
         // Assertions
 
@@ -185,12 +180,10 @@ public class CornerCaseInputTest {
                 + stdError + "\n", 0, exitCode);
 
         // The last three lines of the output must look like this:
-        String[] lines = stdOut.split("\n");
-
         // Message banner takes always the last 3 lines
-        String messageBannerFirstLine = lines[lines.length - 3];
-        String messageBannerSecondLine = lines[lines.length - 2];
-        String messageBannerThirdLine = lines[lines.length - 1];
+        String messageBannerFirstLine = result.getLineFromEnd(3);
+        String messageBannerSecondLine = result.getLineFromEnd(2);
+        String messageBannerThirdLine = result.getLineFromEnd(1);
 
         Assert.assertEquals(MinesweeperTestUtils.MINESWEEPER_CLASS_NAME + " did not produced the right output", //
                 "╔══════════════════╗", messageBannerFirstLine);
@@ -0,0 +1,328 @@
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of an execution of Minesweeper: its exit code, its standard error
+ * and the bytes that it printed on its standard output (UTF-8). </br>
+ *
+ * The output is decoded and split into lines only when a test asks for it, and
+ * only once. Lines end at \n, \r or \r\n, like BufferedReader.readLine(), and
+ * getLine(), getLineFromEnd() and getLines() return them without their
+ * terminator. getLineView() and getStdOutView() return views of the decoded
+ * output that do not copy it, and getFrames() the boards it contains. </br>
+ *
+ * For the tests that still use the Map returned by execute(), this class is
+ * also a Map with the keys "exitCode", "stdOut" (each line followed by
+ * line.separator, as it used to be), "stdError", and whatever else the
+ * execution reported, e.g., "timestamps".
+ *
+ */
+public class ExecutionResult extends AbstractMap<String, Object> {
+
+    public final static String EXIT_CODE = "exitCode";
+    public final static String STD_OUT = "stdOut";
+    public final static String STD_ERROR = "stdError";
+    public final static String TIMESTAMPS = "timestamps";
+    public final static String MOVE_LATENCIES = "moveLatencies";
+    public final static String JVM_PROFILE = "jvmProfile";
+    public final static String CACHED = "cached";
+    public final static String LOADED_CLASSES = "loadedClasses";
+
+    private int exitCode;
+    // One of the two is set when the result is created, the other on demand
+    private byte[] stdOutBytes;
+    private String decoded;
+    private String stdError;
+    // Anything else, in the order it was put
+    private final Map<String, Object> extras = new LinkedHashMap<String, Object>();
+
+    // Built on demand from the decoded output
+    private int[] lineStarts;
+    private int[] lineEnds;
+    private String stdOut;
+    private List<BoardFrame> frames;
+
+    public ExecutionResult(int exitCode, byte[] stdOutBytes, String stdError) {
+        this.exitCode = exitCode;
+        this.stdOutBytes = stdOutBytes;
+        this.stdError = stdError;
+    }
+
+    public ExecutionResult(int exitCode, String stdOut, String stdError) {
+        this.exitCode = exitCode;
+        this.decoded = stdOut;
+        this.stdError = stdError;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public String getStdError() {
+        return stdError;
+    }
+
+    /**
+     * @return the bytes of the standard output, read-only and not copied
+     */
+    public synchronized ByteBuffer getStdOutBytes() {
+        if (stdOutBytes == null) {
+            stdOutBytes = decoded.getBytes(StandardCharsets.UTF_8);
+        }
+        return ByteBuffer.wrap(stdOutBytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the lines of the standard output, each one followed by
+     *         line.separator
+     */
+    public synchronized String getStdOut() {
+        if (stdOut == null) {
+            index();
+            String separator = System.lineSeparator();
+            // Most of the times, that is what Minesweeper printed already
+            if (isNormalized(separator)) {
+                stdOut = decoded;
+            } else {
+                StringBuilder builder = new StringBuilder(decoded.length() + lineStarts.length * separator.length());
+                for (int i = 0; i < lineStarts.length; i++) {
+                    builder.append(decoded, lineStarts[i], lineEnds[i]).append(separator);
+                }
+                stdOut = builder.toString();
+            }
+        }
+        return stdOut;
+    }
+
+    private boolean isNormalized(String separator) {
+        int next = 0;
+        for (int i = 0; i < lineStarts.length; i++) {
+            if (lineStarts[i] != next || !decoded.startsWith(separator, lineEnds[i])) {
+                return false;
+            }
+            next = lineEnds[i] + separator.length();
+        }
+        return next == decoded.length();
+    }
+
+    /**
+     * @param start
+     * @param end
+     * @return the given range of the decoded standard output, without copying it
+     */
+    public CharSequence getStdOutView(int start, int end) {
+        index();
+        return CharBuffer.wrap(decoded, start, end);
+    }
+
+    public int getLineCount() {
+        index();
+        return lineStarts.length;
+    }
+
+    /**
+     * @param index starting from 0
+     * @return the line without its terminator
+     * @throws IndexOutOfBoundsException
+     */
+    public String getLine(int index) {
+        index();
+        return decoded.substring(lineStarts[index], lineEnds[index]);
+    }
+
+    /**
+     * @param index starting from 0
+     * @return the line without its terminator, without copying it
+     * @throws IndexOutOfBoundsException
+     */
+    public CharSequence getLineView(int index) {
+        index();
+        return CharBuffer.wrap(decoded, lineStarts[index], lineEnds[index]);
+    }
+
+    /**
+     * Same as getLine(getLineCount() - index), so getLineFromEnd(1) is the last
+     * line.
+     *
+     * @param index starting from 1
+     * @return
+     * @throws IndexOutOfBoundsException
+     */
+    public String getLineFromEnd(int index) {
+        return getLine(getLineCount() - index);
+    }
+
+    /**
+     * @return the lines of the standard output, which are extracted only when they
+     *         are accessed
+     */
+    public List<String> getLines() {
+        index();
+        return new AbstractList<String>() {
+
+            @Override
+            public String get(int index) {
+                return getLine(index);
+            }
+
+            @Override
+            public int size() {
+                return lineStarts.length;
+            }
+        };
+    }
+
+    /**
+     * @return the boards printed on the standard output, parsed the first time they
+     *         are accessed
+     * @see BoardFrame#parse(List)
+     */
+    public synchronized List<BoardFrame> getFrames() {
+        if (frames == null) {
+            index();
+            frames = BoardFrame.parse(decoded, lineStarts, lineEnds);
+        }
+        return frames;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Long> getTimestamps() {
+        return (Map<String, Long>) extras.get(TIMESTAMPS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Long> getMoveLatencies() {
+        return (List<Long>) extras.get(MOVE_LATENCIES);
+    }
+
+    /**
+     * @return the name of the JvmProfile of the JVM that run Minesweeper, null if
+     *         Minesweeper did not run in its own JVM
+     */
+    public String getJvmProfile() {
+        return (String) extras.get(JVM_PROFILE);
+    }
+
+    /**
+     * @return the names of the classes of MINESWEEPER_HOME that Minesweeper
+     *         loaded, or null if the execution did not report them
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getLoadedClasses() {
+        return (List<String>) extras.get(LOADED_CLASSES);
+    }
+
+    /**
+     * @return whether the result comes from the MinesweeperResultCache instead of
+     *         an execution
+     */
+    public boolean isCached() {
+        return Boolean.TRUE.equals(extras.get(CACHED));
+    }
+
+    /**
+     * Decode the output and find where its lines start and end
+     */
+    private synchronized void index() {
+        if (lineStarts != null) {
+            return;
+        }
+        if (decoded == null) {
+            decoded = new String(stdOutBytes, StandardCharsets.UTF_8);
+        }
+
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int count = 0;
+        int start = 0;
+        int length = decoded.length();
+        // Minesweeper rarely prints \r, so most of the times indexOf() finds the ends
+        boolean onlyNewLines = decoded.indexOf('\r') < 0;
+        while (start < length) {
+            int end = start;
+            char c = '\n';
+            if (onlyNewLines) {
+                end = decoded.indexOf('\n', start);
+                if (end < 0) {
+                    end = length;
+                }
+            } else {
+                while (end < length && (c = decoded.charAt(end)) != '\n' && c != '\r') {
+                    end++;
+                }
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+
+            start = end + 1;
+            if (c == '\r' && start < length && decoded.charAt(start) == '\n') {
+                start++;
+            }
+        }
+        lineEnds = Arrays.copyOf(ends, count);
+        lineStarts = Arrays.copyOf(starts, count);
+    }
+
+    // The Map adapter
+
+    @Override
+    public Object get(Object key) {
+        if (EXIT_CODE.equals(key)) {
+            return exitCode;
+        } else if (STD_OUT.equals(key)) {
+            return getStdOut();
+        } else if (STD_ERROR.equals(key)) {
+            return stdError;
+        }
+        return extras.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return EXIT_CODE.equals(key) || STD_OUT.equals(key) || STD_ERROR.equals(key) || extras.containsKey(key);
+    }
+
+    @Override
+    public synchronized Object put(String key, Object value) {
+        Object previous = get(key);
+        if (EXIT_CODE.equals(key)) {
+            exitCode = (Integer) value;
+        } else if (STD_OUT.equals(key)) {
+            stdOutBytes = null;
+            decoded = (String) value;
+            lineStarts = null;
+            lineEnds = null;
+            stdOut = null;
+            frames = null;
+        } else if (STD_ERROR.equals(key)) {
+            stdError = (String) value;
+        } else {
+            extras.put(key, value);
+        }
+        return previous;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        Map<String, Object> entries = new LinkedHashMap<String, Object>();
+        entries.put(EXIT_CODE, exitCode);
+        entries.put(STD_OUT, getStdOut());
+        entries.put(STD_ERROR, stdError);
+        entries.putAll(extras);
+        return Collections.unmodifiableMap(entries).entrySet();
+    }
+}
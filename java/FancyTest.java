@@ -13,7 +13,6 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 //See https://junit.org/junit4/javadoc/latest/deprecated-list.html
 import org.hamcrest.MatcherAssert;
@@ -43,6 +42,9 @@ public class FancyTest {
     @Rule
     public TemporaryFolder tempFolder = new TemporaryFolder();
 
+    @Rule
+    public MinesweeperSandbox sandbox = new MinesweeperSandbox();
+
     @BeforeClass
     public static void checkPrecondition() {
         /*
@@ -53,7 +55,7 @@ public class FancyTest {
 
     @Before
     public void createFancyConfigIni() throws FileNotFoundException {
-        File configIni = new File(MinesweeperTestUtils.getMinesweeper(), "config.ini");
+        File configIni = new File(MinesweeperTestUtils.getMinesweeperHome(), "config.ini");
         if (configIni.exists()) {
             boolean deleted = configIni.delete();
             if (!deleted) {
@@ -70,7 +72,7 @@ public class FancyTest {
 
     @After
     public void deleteFancyConfigIni() {
-        File configIni = new File(MinesweeperTestUtils.getMinesweeper(), "config.ini");
+        File configIni = new File(MinesweeperTestUtils.getMinesweeperHome(), "config.ini");
         if (configIni.exists()) {
             boolean deleted = configIni.delete();
             if (!deleted) {
@@ -100,11 +102,11 @@ public class FancyTest {
 
         // Execute Minesweeper in a separate process starting it with the boardCfgFile
         // and passing the inputSequence
-        Map<String, Object> result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
+        ExecutionResult result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
 
-        int exitCode = (Integer) result.get("exitCode");
-        String stdOut = (String) result.get("stdOut");
-        String stdError = (String) result.get("stdError");
+        int exitCode = result.getExitCode();
+        String stdOut = result.getStdOut();
+        String stdError = result.getStdError();
 
 
         // Did the program exit normally?
@@ -115,17 +117,17 @@ public class FancyTest {
         MatcherAssert.assertThat(MinesweeperTestUtils.MINESWEEPER_CLASS_NAME + " did not produced any output!", stdOut,
                 Matchers.not(blankOrNullString()));
         
-        String[] lines = stdOut.split("\n");
+        List<BoardFrame> frames = result.getFrames();
         // Skip the first visualization of the board
-        String contentOfCell = "" + lines[10 + 1].charAt(2);
+        String contentOfCell = frames.get(1).getCell(1, 1).getSymbol();
         // Check that there's the F symbol in the expected position: 1 * 2 second line, 1 + 2 column
         Assert.assertEquals("Cannot find expected Flag at position (1, 1). " + stdOut, "F", contentOfCell);
         //
-        contentOfCell = "" + lines[20 + 3].charAt(6);
+        contentOfCell = frames.get(2).getCell(2, 2).getSymbol();
         // Check that there's the F symbol in the expected position: 1 * 2 second line, 1 + 2 column
         Assert.assertEquals("Cannot find expected Flag at position (2, 2). " + stdOut, "F", contentOfCell);
         //
-        contentOfCell = "" + lines[30 + 5].charAt(10);
+        contentOfCell = frames.get(3).getCell(3, 3).getSymbol();
         // Check that there's the F symbol in the expected position: 1 * 2 second line, 1 + 2 column
         Assert.assertEquals("Cannot find expected Flag at position (3, 3). " + stdOut, "F", contentOfCell);
     }
@@ -151,11 +153,11 @@ public class FancyTest {
 
         // Execute Minesweeper in a separate process starting it with the boardCfgFile
         // and passing the inputSequence
-        Map<String, Object> result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
+        ExecutionResult result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
 
-        int exitCode = (Integer) result.get("exitCode");
-        String stdOut = (String) result.get("stdOut");
-        String stdError = (String) result.get("stdError");
+        int exitCode = result.getExitCode();
+        String stdOut = result.getStdOut();
+        String stdError = result.getStdError();
 
 
         // Did the program exit normally?
@@ -166,17 +168,17 @@ public class FancyTest {
         MatcherAssert.assertThat(MinesweeperTestUtils.MINESWEEPER_CLASS_NAME + " did not produced any output!", stdOut,
                 Matchers.not(blankOrNullString()));
         
-        String[] lines = stdOut.split("\n");
+        List<BoardFrame> frames = result.getFrames();
         // Skip the first visualization of the board
-        String contentOfCell = "" + lines[10 + 1].charAt(2);
+        String contentOfCell = frames.get(1).getCell(1, 1).getSymbol();
         // Check that there's the F symbol in the expected position when 1 1 F
         Assert.assertEquals("Cannot find expected Flag at position (1, 1). " + stdOut, "F", contentOfCell);
         //
-        contentOfCell = "" + lines[20 + 1].charAt(2);
+        contentOfCell = frames.get(2).getCell(1, 1).getSymbol();
         // Check that there's the F symbol disappear from position 1 1 F (on the next page)
         Assert.assertEquals("Found unexpected Flag at position (1, 1). " + stdOut, " ", contentOfCell);
         //
-        contentOfCell = "" + lines[30 + 1].charAt(2);
+        contentOfCell = frames.get(3).getCell(1, 1).getSymbol();
         // Check that there's the F symbol in the expected position: 1 * 2 second line, 1 + 2 column
         Assert.assertEquals("Cannot find expected Flag at position (1, 1). " + stdOut, "F", contentOfCell);
 
@@ -201,11 +203,11 @@ public class FancyTest {
         
         // Execute Minesweeper in a separate process starting it with the boardCfgFile
         // and passing the inputSequence
-        Map<String, Object> result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
+        ExecutionResult result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
 
-        int exitCode = (Integer) result.get("exitCode");
-        String stdOut = (String) result.get("stdOut");
-        String stdError = (String) result.get("stdError");
+        int exitCode = result.getExitCode();
+        String stdOut = result.getStdOut();
+        String stdError = result.getStdError();
 
 
         // Did the program exit normally?
@@ -216,9 +218,9 @@ public class FancyTest {
         MatcherAssert.assertThat(MinesweeperTestUtils.MINESWEEPER_CLASS_NAME + " did not produced any output!", stdOut,
                 Matchers.not(blankOrNullString()));
         
-        String[] lines = stdOut.split("\n");
+        List<BoardFrame> frames = result.getFrames();
         // Skip the first visualization of the board
-        String contentOfCell = "" + lines[10 + 1].charAt(10);
+        String contentOfCell = frames.get(1).getCell(1, 3).getSymbol();
         // Check that there's the F symbol in the expected position when 1 1 F
         Assert.assertEquals("Cannot find expected Mine at position (1, 3). " + stdOut, "M", contentOfCell);
     }
@@ -242,11 +244,11 @@ public class FancyTest {
         
         // Execute Minesweeper in a separate process starting it with the boardCfgFile
         // and passing the inputSequence
-        Map<String, Object> result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
+        ExecutionResult result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
 
-        int exitCode = (Integer) result.get("exitCode");
-        String stdOut = (String) result.get("stdOut");
-        String stdError = (String) result.get("stdError");
+        int exitCode = result.getExitCode();
+        String stdOut = result.getStdOut();
+        String stdError = result.getStdError();
 
 
         // Did the program exit normally?
@@ -257,18 +259,23 @@ public class FancyTest {
         MatcherAssert.assertThat(MinesweeperTestUtils.MINESWEEPER_CLASS_NAME + " did not produced any output!", stdOut,
                 Matchers.not(blankOrNullString()));
         
-        String[] lines = stdOut.split("\n");
+        List<BoardFrame> frames = result.getFrames();
         // Skip the first visualization of the board
         // Check that there's the F symbol in the expected position when 1 1 F
-        Assert.assertEquals("Cannot find expected Mine at position (1, 1). " + stdOut, "M", "" + lines[10 + 1].charAt(2));
+        Assert.assertEquals("Cannot find expected Mine at position (1, 1). " + stdOut, "M",
+                frames.get(1).getCell(1, 1).getSymbol());
         // Check that there's the F symbol in the expected position when 1 1 F
-        Assert.assertEquals("Cannot find expected Mine at position (1, 2). " + stdOut, "M", "" + lines[10 + 1].charAt(6));
+        Assert.assertEquals("Cannot find expected Mine at position (1, 2). " + stdOut, "M",
+                frames.get(1).getCell(1, 2).getSymbol());
         // Check that there's the F symbol in the expected position when 1 1 F
-        Assert.assertEquals("Cannot find expected Mine at position (1, 3). " + stdOut, "M", "" + lines[10 + 1].charAt(10));
+        Assert.assertEquals("Cannot find expected Mine at position (1, 3). " + stdOut, "M",
+                frames.get(1).getCell(1, 3).getSymbol());
         // Check that there's the F symbol in the expected position when 1 1 F
-        Assert.assertEquals("Cannot find expected Mine at position (2, 1). " + stdOut, "M", "" + lines[10 + 3].charAt(2));
+        Assert.assertEquals("Cannot find expected Mine at position (2, 1). " + stdOut, "M",
+                frames.get(1).getCell(2, 1).getSymbol());
         // Check that there's the F symbol in the expected position when 1 1 F
-        Assert.assertEquals("Cannot find expected Mine at position (1, 3). " + stdOut, "M", "" + lines[10 + 5].charAt(10));
+        Assert.assertEquals("Cannot find expected Mine at position (1, 3). " + stdOut, "M",
+                frames.get(1).getCell(3, 3).getSymbol());
         
     }
 }
\ No newline at end of file
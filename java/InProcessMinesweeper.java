@@ -0,0 +1,363 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.security.Permission;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Execute the Minesweeper version pointed by
+ * MinesweeperTestUtils.getMinesweeperHome() inside the JVM that runs the tests
+ * instead of forking a new one. </br>
+ *
+ * Each invocation loads Minesweeper in a new, throw-away class loader whose
+ * parent is the platform class loader, so neither the test classes nor the
+ * static state of previous invocations are visible to it. The bytes of the
+ * classes are read from MINESWEEPER_HOME only once. Standard input,
+ * output and error are redirected for the duration of the invocation and calls
+ * to System.exit are turned into the exit code of the result. For that, the
+ * first invocation installs a SecurityManager, which stays installed until the
+ * JVM exits. </br>
+ *
+ * Since System.in, System.out and System.err are global, invocations are
+ * serialized. Note that output written directly to FileDescriptor.out is not
+ * captured.
+ *
+ */
+public class InProcessMinesweeper {
+
+    // Same exit code that a forked Minesweeper reports when destroy() kills it
+    public final static int TIMEOUT_EXIT_CODE = 143;
+
+    private final static Object LOCK = new Object();
+
+    private static ExitTrappingSecurityManager exitTrap;
+
+    // Set once a Minesweeper could not be stopped after its timeout
+    private static volatile boolean leftBehind = false;
+
+    // Class files do not change while the tests run, so read them only once
+    private final static Map<URL, byte[]> classBytes = new ConcurrentHashMap<URL, byte[]>();
+
+    /**
+     * Thrown in place of System.exit while Minesweeper runs in-process.
+     */
+    static final class ExitTrappedException extends SecurityException {
+
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ExitTrappedException(int status) {
+            super("System.exit(" + status + ") trapped");
+            this.status = status;
+        }
+    }
+
+    /**
+     * Defines the classes of MINESWEEPER_HOME from the bytes cached in classBytes
+     */
+    static final class SubmissionClassLoader extends URLClassLoader {
+
+        private final ProtectionDomain protectionDomain;
+
+        // Names of the classes defined so far, in the order they were loaded
+        private final List<String> loadedClasses = Collections.synchronizedList(new ArrayList<String>());
+
+        SubmissionClassLoader(URL minesweeperHome) {
+            super(new URL[] { minesweeperHome }, ClassLoader.getPlatformClassLoader());
+            this.protectionDomain = new ProtectionDomain(new CodeSource(minesweeperHome, (Certificate[]) null), null,
+                    this, null);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            URL classFile = findResource(name.replace('.', '/') + ".class");
+            if (classFile == null) {
+                throw new ClassNotFoundException(name);
+            }
+
+            byte[] bytes = classBytes.get(classFile);
+            if (bytes == null) {
+                try (InputStream in = classFile.openStream()) {
+                    bytes = in.readAllBytes();
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+                classBytes.put(classFile, bytes);
+            }
+            Class<?> loaded = defineClass(name, bytes, 0, bytes.length, protectionDomain);
+            loadedClasses.add(name);
+            return loaded;
+        }
+
+        List<String> getLoadedClasses() {
+            synchronized (loadedClasses) {
+                return new ArrayList<String>(loadedClasses);
+            }
+        }
+    }
+
+    /**
+     * Allows everything but System.exit, and only while an invocation is running.
+     */
+    @SuppressWarnings("removal")
+    static final class ExitTrappingSecurityManager extends SecurityManager {
+
+        volatile boolean trapping = false;
+        volatile Integer exitCode = null;
+
+        // Threads of invocations that could not be stopped
+        final Set<ThreadGroup> abandoned = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void checkPermission(Permission perm) {
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+        }
+
+        @Override
+        public void checkExit(int status) {
+            ThreadGroup group = Thread.currentThread().getThreadGroup();
+            for (ThreadGroup abandonedGroup : abandoned) {
+                if (abandonedGroup.parentOf(group)) {
+                    // Its invocation is over, it must not end the JVM
+                    throw new ExitTrappedException(status);
+                }
+            }
+            if (trapping) {
+                // Student code might catch the exception, so remember the first exit code
+                if (exitCode == null) {
+                    exitCode = status;
+                }
+                throw new ExitTrappedException(status);
+            }
+        }
+    }
+
+    /**
+     * Check whether this JVM lets us trap System.exit. Newer JVMs do not allow
+     * installing a SecurityManager at runtime unless started with
+     * -Djava.security.manager=allow. This only looks at the JVM: the
+     * SecurityManager is installed by the first execute(). </br>
+     *
+     * Since Java 20, Thread.stop() does not work, so a Minesweeper that does not
+     * end in time would keep running, and writing to the streams of the next
+     * invocations. For the same reason, no JVM is supported anymore once an
+     * invocation could not be stopped.
+     *
+     * @return
+     */
+    @SuppressWarnings("removal")
+    public static boolean isSupported() {
+        if (leftBehind || Runtime.version().feature() >= 20) {
+            return false;
+        }
+        synchronized (LOCK) {
+            if (exitTrap != null) {
+                return true;
+            }
+        }
+        int version = Runtime.version().feature();
+        if (version >= 24) {
+            // The SecurityManager is gone for good
+            return false;
+        }
+        SecurityManager current = System.getSecurityManager();
+        if (current != null) {
+            // Installed at startup, so the JVM allows it, but it might not allow
+            // replacing it
+            try {
+                current.checkPermission(new RuntimePermission("setSecurityManager"));
+                return true;
+            } catch (SecurityException e) {
+                return false;
+            }
+        }
+        String setting = System.getProperty("java.security.manager");
+        if ("allow".equals(setting)) {
+            return true;
+        }
+        if ("disallow".equals(setting)) {
+            return false;
+        }
+        // Java 18 disallows it by default
+        return version < 18;
+    }
+
+    /**
+     * Install the SecurityManager that traps System.exit, if not installed yet.
+     * The JVM keeps it afterwards, even when nothing runs in-process anymore,
+     * and JVMs after 17 print a warning on stderr when it is installed.
+     *
+     * @throws UnsupportedOperationException if the JVM does not allow it
+     */
+    @SuppressWarnings("removal")
+    private static void installExitTrap() {
+        synchronized (LOCK) {
+            if (exitTrap != null) {
+                return;
+            }
+            try {
+                ExitTrappingSecurityManager securityManager = new ExitTrappingSecurityManager();
+                System.setSecurityManager(securityManager);
+                exitTrap = securityManager;
+            } catch (UnsupportedOperationException | SecurityException e) {
+                throw new UnsupportedOperationException("Cannot trap System.exit in this JVM", e);
+            }
+        }
+    }
+
+    /**
+     * Execute the Minesweeper version found in the given MINESWEEPER_HOME with the
+     * given program arguments and inputSequence in this JVM. The minesweeper.home
+     * property points to that folder for the duration of the invocation.
+     *
+     * @param minesweeperHome
+     * @param commandLineInputs
+     * @param inputSequence
+     * @param timeoutInSeconds
+     * @return the exitCode and a copy of the stdOutput and stdError generated by
+     *         the program, and the loadedClasses of MINESWEEPER_HOME
+     * @throws Exception
+     */
+    public static ExecutionResult execute(File minesweeperHome, List<File> commandLineInputs,
+            List<String> inputSequence, int timeoutInSeconds) throws Exception {
+        installExitTrap();
+
+        String[] args = MinesweeperTestUtils.getProgramArguments(commandLineInputs).toArray(new String[0]);
+
+        // Same as println() on the stdin of the forked process
+        StringBuilder inputBuilder = new StringBuilder();
+        for (String input : inputSequence) {
+            inputBuilder.append(input);
+            inputBuilder.append(System.getProperty("line.separator"));
+        }
+        InputStream stdIn = new ByteArrayInputStream(inputBuilder.toString().getBytes(Charset.defaultCharset()));
+        ByteArrayOutputStream stdOut = new ByteArrayOutputStream();
+        ByteArrayOutputStream stdErr = new ByteArrayOutputStream();
+
+        synchronized (LOCK) {
+            InputStream originalIn = System.in;
+            PrintStream originalOut = System.out;
+            PrintStream originalErr = System.err;
+            String originalHome = System.getProperty(MinesweeperTestUtils.MINESWEEPER_HOME);
+            ThreadGroup group = new ThreadGroup("minesweeper");
+            boolean stopped = true;
+
+            try (SubmissionClassLoader classLoader = new SubmissionClassLoader(minesweeperHome.toURI().toURL());
+                    // The forked Minesweeper runs with -Dfile.encoding=UTF-8
+                    PrintStream out = new PrintStream(stdOut, true, StandardCharsets.UTF_8.name());
+                    PrintStream err = new PrintStream(stdErr, true, StandardCharsets.UTF_8.name())) {
+
+                Method main = classLoader.loadClass(MinesweeperTestUtils.getMinesweeperClassName())
+                        .getMethod("main", String[].class);
+
+                System.setIn(stdIn);
+                System.setOut(out);
+                System.setErr(err);
+                // Same as -Dminesweeper.home on the forked process
+                System.setProperty(MinesweeperTestUtils.MINESWEEPER_HOME, minesweeperHome.getPath());
+                exitTrap.exitCode = null;
+                exitTrap.trapping = true;
+
+                final Throwable[] uncaught = new Throwable[1];
+                Thread mainThread = new Thread(group, () -> {
+                    try {
+                        main.invoke(null, (Object) args);
+                    } catch (InvocationTargetException e) {
+                        uncaught[0] = e.getCause();
+                    } catch (Throwable e) {
+                        uncaught[0] = e;
+                    }
+                }, "main");
+                mainThread.setContextClassLoader(classLoader);
+                mainThread.start();
+                mainThread.join(timeoutInSeconds * 1000L);
+
+                int exitCode;
+                if (mainThread.isAlive()) {
+                    stopped = stop(mainThread);
+                    if (!stopped) {
+                        leftBehind = true;
+                        exitTrap.abandoned.add(group);
+                    }
+                    exitCode = TIMEOUT_EXIT_CODE;
+                } else if (exitTrap.exitCode != null) {
+                    exitCode = exitTrap.exitCode;
+                } else if (uncaught[0] != null) {
+                    // This is what the JVM does with an uncaught exception in main
+                    err.print("Exception in thread \"main\" ");
+                    uncaught[0].printStackTrace(err);
+                    exitCode = 1;
+                } else {
+                    exitCode = 0;
+                }
+
+                out.flush();
+                err.flush();
+
+                ExecutionResult result = new ExecutionResult(exitCode, stdOut.toByteArray(), MinesweeperTestUtils
+                        .readLines(new ByteArrayInputStream(stdErr.toByteArray()), Charset.defaultCharset()));
+                result.put(ExecutionResult.LOADED_CLASSES, classLoader.getLoadedClasses());
+                return result;
+            } finally {
+                exitTrap.trapping = false;
+                System.setIn(originalIn);
+                System.setOut(originalOut);
+                System.setErr(originalErr);
+                if (originalHome != null) {
+                    System.setProperty(MinesweeperTestUtils.MINESWEEPER_HOME, originalHome);
+                } else {
+                    System.clearProperty(MinesweeperTestUtils.MINESWEEPER_HOME);
+                }
+                if (!stopped) {
+                    // Only now System.err is the one of the user
+                    System.err.println("Cannot stop " + MinesweeperTestUtils.MINESWEEPER_CLASS_NAME
+                            + " after timeout, it keeps running. The next executions do not run in-process");
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the given thread, if it does not end when interrupted.
+     *
+     * @param thread
+     * @return false if the thread is still running
+     * @throws InterruptedException
+     */
+    @SuppressWarnings("deprecation")
+    private static boolean stop(Thread thread) throws InterruptedException {
+        thread.interrupt();
+        thread.join(100);
+        if (thread.isAlive()) {
+            try {
+                thread.stop();
+                thread.join(100);
+            } catch (UnsupportedOperationException e) {
+                // Newer JVMs cannot stop threads. Leave it behind.
+                return false;
+            }
+        }
+        return !thread.isAlive();
+    }
+}
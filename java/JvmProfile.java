@@ -0,0 +1,82 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A named set of options for the JVMs that run Minesweeper in their own process
+ * (fork and pool). Select it with -Dminesweeper.jvm.profile, the default profile
+ * adds no options. </br>
+ *
+ * Minesweeper runs for about a hundred milliseconds, so the fast-start profile
+ * trades peak performance for startup: only C1 compiles, the serial collector
+ * does not start GC threads, the heap is small and fixed, the JDK classes come
+ * from the default CDS archive, and the JVM does not create its hsperfdata file.
+ *
+ */
+public class JvmProfile {
+
+    public final static String DEFAULT = "default";
+    public final static String FAST_START = "fast-start";
+
+    private final static Map<String, JvmProfile> profiles = new LinkedHashMap<String, JvmProfile>();
+
+    static {
+        register(new JvmProfile(DEFAULT, Collections.emptyList()));
+        register(new JvmProfile(FAST_START, Arrays.asList( //
+                "-XX:TieredStopAtLevel=1", //
+                "-XX:+UseSerialGC", //
+                "-Xms64m", "-Xmx64m", //
+                "-Xshare:auto", //
+                "-XX:-UsePerfData")));
+    }
+
+    private final String name;
+    private final List<String> jvmOptions;
+
+    public JvmProfile(String name, List<String> jvmOptions) {
+        this.name = name;
+        this.jvmOptions = Collections.unmodifiableList(jvmOptions);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the options to put before the class path in the java command
+     */
+    public List<String> getJvmOptions() {
+        return jvmOptions;
+    }
+
+    public static void register(JvmProfile profile) {
+        synchronized (profiles) {
+            profiles.put(profile.getName(), profile);
+        }
+    }
+
+    /**
+     * Return the profile with the given name
+     *
+     * @param name
+     * @return
+     * @throws IllegalArgumentException if there is no such profile
+     */
+    public static JvmProfile forName(String name) {
+        synchronized (profiles) {
+            JvmProfile profile = profiles.get(name);
+            if (profile == null) {
+                throw new IllegalArgumentException(
+                        "Unknown JVM profile '" + name + "', use one of " + profiles.keySet());
+            }
+            return profile;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + jvmOptions;
+    }
+}
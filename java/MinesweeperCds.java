@@ -0,0 +1,313 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Application Class Data Sharing (AppCDS) for the JVMs that execute
+ * Minesweeper. </br>
+ *
+ * When enabled with -Dminesweeper.cds=true, the first forked execution for a
+ * MINESWEEPER_HOME builds an archive of the classes that Minesweeper loads, and
+ * every forked execution after that maps the archive instead of loading and
+ * verifying those classes again. The archive is built from a training run of a
+ * few games: the classes they load are listed with -XX:DumpLoadedClassList and
+ * dumped with -Xshare:dump, which all the JVMs since 11 support. </br>
+ *
+ * CDS does not archive classes from folders, so the class files of
+ * MINESWEEPER_HOME are copied into a jar, which goes on the class path before
+ * MINESWEEPER_HOME. Archives are stored in -Dminesweeper.cds.dir (by default, in
+ * the temporary folder) under a hash of the content of the class files and the
+ * java that runs Minesweeper, so a new archive is built whenever the class files
+ * change, and sandboxes with the same class files share it. If the archive
+ * cannot be built, executions run without it. </br>
+ *
+ * Only forked executions use the archive: the other execution modes do not
+ * start a JVM for each execution.
+ *
+ */
+public class MinesweeperCds {
+
+    public final static String CDS = "minesweeper.cds";
+    public final static String CDS_DIR = "minesweeper.cds.dir";
+
+    private final static String JAR = "classes.jar";
+    private final static String CLASS_LIST = "classes.lst";
+    private final static String ARCHIVE = "minesweeper.jsa";
+
+    private final static int TRAINING_TIMEOUT_IN_SECONDS = 10;
+
+    // The training games: a win, a loss, and a game with a wrong input that ends
+    // without enough inputs
+    private final static String TRAINING_BOARD = "..*\n...\n...\n";
+    private final static List<List<String>> TRAINING_INPUTS = Arrays.asList( //
+            Arrays.asList("1 1 F", "1 1 F", "3 1 R", "2 3 R", "1 2 R"), //
+            Arrays.asList("1 3 R"), //
+            Arrays.asList("1 1 X", "2 2 R"));
+
+    /**
+     * A CDS archive and the jar with the classes it was built from
+     */
+    static final class Archive {
+
+        final File jar;
+        final File archive;
+
+        Archive(File jar, File archive) {
+            this.jar = jar;
+            this.archive = archive;
+        }
+
+        List<String> getJvmOptions() {
+            // If the archive does not match this JVM, run without it
+            return Arrays.asList("-XX:SharedArchiveFile=" + archive.getPath(), "-Xshare:auto");
+        }
+
+        String getClassPath(File minesweeperHome) {
+            return jar.getPath() + File.pathSeparator + minesweeperHome.getPath();
+        }
+    }
+
+    /**
+     * What identifies the class files of a MINESWEEPER_HOME without reading them
+     */
+    private static final class Stamp {
+
+        final List<String> files;
+        // Null if the archive cannot be built
+        final Archive archive;
+
+        Stamp(List<String> files, Archive archive) {
+            this.files = files;
+            this.archive = archive;
+        }
+    }
+
+    private final static Map<File, Stamp> stamps = new ConcurrentHashMap<File, Stamp>();
+
+    // Output of java -version, read once
+    private static String javaVersion;
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(CDS);
+    }
+
+    /**
+     * Return the archive for the given MINESWEEPER_HOME, building it if needed.
+     *
+     * @param minesweeperHome
+     * @return the archive, or null if CDS is not enabled or the archive cannot be
+     *         built
+     */
+    static Archive getArchive(File minesweeperHome) {
+        if (!isEnabled()) {
+            return null;
+        }
+        try {
+            List<File> classFiles = listClassFiles(minesweeperHome);
+            List<String> files = new ArrayList<String>();
+            for (File classFile : classFiles) {
+                files.add(classFile.getPath() + ":" + classFile.length() + ":" + classFile.lastModified());
+            }
+
+            Stamp stamp = stamps.get(minesweeperHome);
+            if (stamp == null || !stamp.files.equals(files)) {
+                stamp = new Stamp(files, build(minesweeperHome, classFiles));
+                stamps.put(minesweeperHome, stamp);
+            }
+            return stamp.archive;
+        } catch (IOException e) {
+            System.err.println("Cannot use CDS for " + minesweeperHome + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    static List<File> listClassFiles(File minesweeperHome) throws IOException {
+        try (Stream<Path> paths = Files.walk(minesweeperHome.toPath())) {
+            return paths.filter(path -> path.toString().endsWith(".class") && Files.isRegularFile(path)).sorted()
+                    .map(Path::toFile).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Build the archive for the given class files, unless it exists already.
+     *
+     * @return the archive, or null if it cannot be built
+     */
+    private static synchronized Archive build(File minesweeperHome, List<File> classFiles) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        digest.update(MinesweeperTestUtils.getJava().getBytes(StandardCharsets.UTF_8));
+        digest.update(getJavaVersion().getBytes(StandardCharsets.UTF_8));
+        for (File classFile : classFiles) {
+            digest.update(relativize(minesweeperHome, classFile).getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(classFile.toPath()));
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : Arrays.copyOf(digest.digest(), 16)) {
+            key.append(String.format("%02x", b));
+        }
+
+        File folder = new File(
+                System.getProperty(CDS_DIR, new File(System.getProperty("java.io.tmpdir"), "minesweeper-cds").getPath()),
+                key.toString());
+        Archive archive = new Archive(new File(folder, JAR), new File(folder, ARCHIVE));
+        if (archive.archive.isFile()) {
+            return archive;
+        }
+        // A previous attempt failed
+        if (new File(folder, CLASS_LIST).isFile()) {
+            return null;
+        }
+
+        folder.mkdirs();
+        // Other test runs might build the same archive at the same time
+        File building = Files.createTempDirectory(folder.toPath(), "building").toFile();
+        try {
+            File jar = new File(building, JAR);
+            writeJar(minesweeperHome, classFiles, jar);
+
+            File classList = new File(building, CLASS_LIST);
+            train(minesweeperHome, jar, building, classList);
+
+            // The archive must be dumped with the class path it is used with, so the jar
+            // is put in place first
+            if (!archive.jar.isFile()) {
+                move(jar, archive.jar);
+            }
+            File jsa = new File(building, ARCHIVE);
+            int exitCode = run(Arrays.asList(MinesweeperTestUtils.getJava(), "-Xshare:dump",
+                    "-XX:SharedClassListFile=" + classList.getPath(), "-XX:SharedArchiveFile=" + jsa.getPath(),
+                    "-cp", archive.jar.getPath()), null, building);
+            if (exitCode != 0 || !jsa.isFile()) {
+                move(classList, new File(folder, CLASS_LIST));
+                System.err.println("Cannot build the CDS archive for " + minesweeperHome + ", see "
+                        + new File(folder, CLASS_LIST));
+                return null;
+            }
+
+            move(classList, new File(folder, CLASS_LIST));
+            move(jsa, archive.archive);
+            return archive;
+        } finally {
+            for (File file : building.listFiles()) {
+                file.delete();
+            }
+            building.delete();
+        }
+    }
+
+    static String relativize(File minesweeperHome, File classFile) {
+        return minesweeperHome.toPath().relativize(classFile.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    private static void writeJar(File minesweeperHome, List<File> classFiles, File jar) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            for (File classFile : classFiles) {
+                JarEntry entry = new JarEntry(relativize(minesweeperHome, classFile));
+                entry.setTime(classFile.lastModified());
+                out.putNextEntry(entry);
+                Files.copy(classFile.toPath(), out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Play the training games and list the classes they load.
+     */
+    private static void train(File minesweeperHome, File jar, File building, File classList) throws IOException {
+        File boardCfgFile = new File(building, "training.cfg");
+        Files.write(boardCfgFile.toPath(), TRAINING_BOARD.getBytes(StandardCharsets.UTF_8));
+
+        // Classes in the order they were first loaded
+        Set<String> classes = new LinkedHashSet<String>();
+        for (int i = 0; i < TRAINING_INPUTS.size(); i++) {
+            File loaded = new File(building, "training-" + i + ".lst");
+            List<String> command = new ArrayList<String>();
+            command.add(MinesweeperTestUtils.getJava());
+            command.add("-Xshare:off");
+            command.add("-XX:DumpLoadedClassList=" + loaded.getPath());
+            command.add(MinesweeperTestUtils.getEncoding());
+            command.add("-D" + MinesweeperTestUtils.MINESWEEPER_HOME + "=" + minesweeperHome.getPath());
+            command.add("-cp");
+            command.add(jar.getPath() + File.pathSeparator + minesweeperHome.getPath());
+            command.add(MinesweeperTestUtils.getMinesweeperClassName());
+            command.add(boardCfgFile.getPath());
+            run(command, TRAINING_INPUTS.get(i), building);
+            if (loaded.isFile()) {
+                classes.addAll(Files.readAllLines(loaded.toPath()));
+            }
+        }
+        Files.write(classList.toPath(), classes);
+    }
+
+    /**
+     * Run the given command, with the given inputs (if any) on its standard input
+     * and discarding its output.
+     *
+     * @return the exit code, -1 if it does not terminate in time
+     */
+    private static int run(List<String> command, List<String> inputs, File workingDirectory) throws IOException {
+        Process process = new ProcessBuilder(command).directory(workingDirectory).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        try (PrintWriter stdin = new PrintWriter(process.getOutputStream())) {
+            if (inputs != null) {
+                inputs.forEach(stdin::println);
+            }
+        }
+        try {
+            if (!process.waitFor(TRAINING_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return -1;
+            }
+            return process.exitValue();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static String getJavaVersion() throws IOException {
+        if (javaVersion == null) {
+            Process process = new ProcessBuilder(MinesweeperTestUtils.getJava(), "-version").redirectErrorStream(true)
+                    .start();
+            try (InputStream in = process.getInputStream()) {
+                javaVersion = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        return javaVersion;
+    }
+
+    private static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
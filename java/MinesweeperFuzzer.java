@@ -0,0 +1,299 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Differential fuzzing of the Minesweeper in MINESWEEPER_HOME against
+ * MinesweeperOracle. </br>
+ *
+ * Each case is a random board and sequence of moves, generated like
+ * ScenarioGenerator does. The submission must exit with 0 and print the same
+ * frames as the oracle; otherwise the first frame that differs is reported and
+ * the case is saved as a reproducer in the same layout as test_scenarios, so
+ * ScenarioTest can run it with -Dtest.scenarios. Reproducers keep only the
+ * moves up to the one that produced the diverging frame. </br>
+ *
+ * To avoid forking a JVM for each case, Minesweeper runs in workers, one for
+ * each thread (by default, one thread for each core), unless
+ * -Dminesweeper.execution says otherwise. With a single thread it runs
+ * in-process instead, if this JVM can trap System.exit: in-process executions
+ * are serialized, so they cannot use more threads. Each case loads Minesweeper
+ * in a new class loader to keep cases independent, which bounds the throughput
+ * of a single thread. The rate of the run is reported against
+ * TARGET_CASES_PER_SECOND. Fuzzing stops when the time budget is
+ * over, after the given number of cases, or after the given number of
+ * failures. </br>
+ *
+ * Usage:
+ *
+ * <pre>
+ * MinesweeperFuzzer [--time=SECONDS] [--count=N] [--seed=S] [--threads=N] [--max-failures=N]
+ *                   [--reproducers=folder] [--max-rows=N] [--max-columns=N] [--max-moves=N]
+ * </pre>
+ *
+ */
+public class MinesweeperFuzzer {
+
+    public final static int DEFAULT_TIME_IN_SECONDS = 60;
+    public final static int DEFAULT_MAX_FAILURES = 10;
+    public final static String DEFAULT_REPRODUCERS = "fuzz_reproducers";
+
+    // Enough cases to find rare divergences in a run of a few minutes
+    public final static int TARGET_CASES_PER_SECOND = 1000;
+
+    private final static int TIMEOUT_IN_SECONDS = 2;
+
+    final long seed;
+    final long budgetInNanos;
+    final long count;
+    final int threads;
+    final int maxFailures;
+    final File reproducers;
+    final int maxRows;
+    final int maxColumns;
+    final int maxMoves;
+
+    MinesweeperFuzzer(long seed, long budgetInNanos, long count, int threads, int maxFailures, File reproducers,
+            int maxRows, int maxColumns, int maxMoves) {
+        this.seed = seed;
+        this.budgetInNanos = budgetInNanos;
+        this.count = count;
+        this.threads = threads;
+        this.maxFailures = maxFailures;
+        this.reproducers = reproducers;
+        this.maxRows = maxRows;
+        this.maxColumns = maxColumns;
+        this.maxMoves = maxMoves;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int time = DEFAULT_TIME_IN_SECONDS;
+        long count = Long.MAX_VALUE;
+        long seed = System.currentTimeMillis();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxFailures = DEFAULT_MAX_FAILURES;
+        String reproducers = DEFAULT_REPRODUCERS;
+        int maxRows = ScenarioGenerator.MAX_ROWS;
+        int maxColumns = ScenarioGenerator.MAX_COLUMNS;
+        int maxMoves = ScenarioGenerator.DEFAULT_MAX_MOVES;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--time=")) {
+                time = Integer.parseInt(value);
+            } else if (arg.startsWith("--count=")) {
+                count = Long.parseLong(value);
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(value);
+            } else if (arg.startsWith("--max-failures=")) {
+                maxFailures = Integer.parseInt(value);
+            } else if (arg.startsWith("--reproducers=")) {
+                reproducers = value;
+            } else if (arg.startsWith("--max-rows=")) {
+                maxRows = Math.min(ScenarioGenerator.MAX_ROWS, Integer.parseInt(value));
+            } else if (arg.startsWith("--max-columns=")) {
+                maxColumns = Math.min(ScenarioGenerator.MAX_COLUMNS, Integer.parseInt(value));
+            } else if (arg.startsWith("--max-moves=")) {
+                maxMoves = Integer.parseInt(value);
+            } else {
+                System.err.println("Usage: MinesweeperFuzzer [--time=SECONDS] [--count=N] [--seed=S] [--threads=N]"
+                        + " [--max-failures=N] [--reproducers=folder] [--max-rows=N] [--max-columns=N]"
+                        + " [--max-moves=N]");
+                System.exit(1);
+            }
+        }
+
+        if (System.getProperty(MinesweeperTestUtils.EXECUTION_MODE) == null) {
+            // In-process executions hold a global lock, so only workers scale with threads
+            System.setProperty(MinesweeperTestUtils.EXECUTION_MODE,
+                    threads == 1 && InProcessMinesweeper.isSupported() ? MinesweeperTestUtils.IN_PROCESS_EXECUTION
+                            : MinesweeperTestUtils.WORKER_EXECUTION);
+        }
+        if (System.getProperty(MinesweeperTestUtils.WORKERS) == null) {
+            System.setProperty(MinesweeperTestUtils.WORKERS, String.valueOf(threads));
+        }
+
+        System.out.println("Fuzzing " + MinesweeperTestUtils.getMinesweeperHome() + " ("
+                + MinesweeperTestUtils.getExecutionMode() + ", " + threads + (threads == 1 ? " thread" : " threads")
+                + ") for " + time + " s with seed " + seed);
+        MinesweeperFuzzer fuzzer = new MinesweeperFuzzer(seed, TimeUnit.SECONDS.toNanos(time), count, threads,
+                maxFailures, new File(reproducers), maxRows, maxColumns, maxMoves);
+        int failures = fuzzer.fuzz();
+
+        // Stop pools and workers
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Run cases until the budget is over.
+     *
+     * @return the number of failed cases
+     * @throws Exception
+     */
+    int fuzz() throws Exception {
+        File boardFolder = Files.createTempDirectory("fuzz-boards").toFile();
+
+        long start = System.nanoTime();
+        AtomicLong nextCase = new AtomicLong();
+        AtomicLong executed = new AtomicLong();
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int thread = 0; thread < threads; thread++) {
+            // Minesweeper accepts only .cfg files
+            File boardCfgFile = new File(boardFolder, thread + ".cfg");
+            pool.submit(() -> {
+                try {
+                    long index;
+                    while (failures.get() < maxFailures && System.nanoTime() - start < budgetInNanos
+                            && (index = nextCase.getAndIncrement()) < count) {
+                        if (!fuzz(index, boardCfgFile)) {
+                            failures.incrementAndGet();
+                        }
+                        executed.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    System.err.println("Fuzzing stopped");
+                    e.printStackTrace();
+                } finally {
+                    boardCfgFile.delete();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        boardFolder.delete();
+
+        long cases = executed.get();
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        long rate = cases * TimeUnit.SECONDS.toNanos(1) / elapsed;
+        System.out.println("Executed " + cases + " cases in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms ("
+                + rate + " cases/s), " + failures.get() + " failed");
+        if (rate < TARGET_CASES_PER_SECOND) {
+            System.out.println("Below the target of " + TARGET_CASES_PER_SECOND + " cases/s"
+                    + (threads == 1 ? ", try more --threads" : ""));
+        } else {
+            System.out.println("Reached the target of " + TARGET_CASES_PER_SECOND + " cases/s");
+        }
+        return failures.get();
+    }
+
+    /**
+     * Run a single case.
+     *
+     * @return false if the submission diverged from the oracle
+     * @throws Exception
+     */
+    private boolean fuzz(long index, File boardCfgFile) throws Exception {
+        // Same mixing as ScenarioGenerator, so a case can be replayed from seed and
+        // index
+        Random random = new Random(seed ^ (index * 0x9E3779B97F4A7C15L));
+        List<String> board = ScenarioGenerator.generateBoard(random, maxRows, maxColumns);
+        List<String> inputs = ScenarioGenerator.generateInputs(random, board.size(), board.get(0).length(),
+                maxMoves);
+
+        Files.write(boardCfgFile.toPath(), board);
+        ExecutionResult result = MinesweeperTestUtils.execute(Collections.singletonList(boardCfgFile), inputs,
+                TIMEOUT_IN_SECONDS);
+
+        List<List<String>> expected = toFrames(
+                MinesweeperOracle.play(String.join("\n", board) + "\n", inputs).lines().collect(Collectors.toList()));
+        List<List<String>> actual = toFrames(result.getLines());
+        int diverging = 0;
+        while (diverging < expected.size() && diverging < actual.size()
+                && expected.get(diverging).equals(actual.get(diverging))) {
+            diverging++;
+        }
+        int exitCode = result.getExitCode();
+        if (diverging == expected.size() && diverging == actual.size() && exitCode == 0) {
+            return true;
+        }
+
+        // Frame N follows input N-1. Without a diverging frame, the exit code is wrong
+        // and all the inputs are needed
+        int moves = diverging < expected.size() || diverging < actual.size() ? Math.min(diverging, inputs.size())
+                : inputs.size();
+        List<String> reproducerInputs = new ArrayList<String>(inputs.subList(0, moves));
+        File reproducer = save(index, board, reproducerInputs);
+
+        StringBuilder report = new StringBuilder();
+        report.append("Case ").append(index).append(" diverged, saved in ").append(reproducer)
+                .append(System.lineSeparator());
+        report.append("Board:").append(System.lineSeparator()).append(String.join(System.lineSeparator(), board))
+                .append(System.lineSeparator());
+        if (diverging < expected.size() || diverging < actual.size()) {
+            report.append("Frame ").append(diverging)
+                    .append(diverging == 0 ? " (initial)" : " after input '" + inputs.get(diverging - 1) + "'")
+                    .append(System.lineSeparator());
+            report.append("Expected:").append(System.lineSeparator())
+                    .append(frame(expected, diverging)).append(System.lineSeparator());
+            report.append("Actual:").append(System.lineSeparator()).append(frame(actual, diverging))
+                    .append(System.lineSeparator());
+        }
+        report.append("Exit code: ").append(exitCode).append(System.lineSeparator());
+        if (!result.getStdError().isEmpty()) {
+            report.append("Standard error:").append(System.lineSeparator()).append(result.getStdError());
+        }
+        System.out.println(report);
+        return false;
+    }
+
+    /**
+     * Split the output of Minesweeper into frames, each one ending with the last
+     * line of the message box.
+     *
+     * @param lines of the output
+     * @return
+     */
+    static List<List<String>> toFrames(List<String> lines) {
+        List<List<String>> frames = new ArrayList<List<String>>();
+        List<String> frame = new ArrayList<String>();
+        for (String line : lines) {
+            frame.add(line);
+            if (line.startsWith("╚")) {
+                frames.add(frame);
+                frame = new ArrayList<String>();
+            }
+        }
+        if (!frame.isEmpty()) {
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static String frame(List<List<String>> frames, int index) {
+        return index < frames.size() ? String.join(System.lineSeparator(), frames.get(index)) : "<missing>";
+    }
+
+    /**
+     * Save the case in the layout of test_scenarios, with the output of the oracle
+     * as expected output.
+     *
+     * @return the folder of the reproducer
+     * @throws IOException
+     */
+    private File save(long index, List<String> board, List<String> inputs) throws IOException {
+        // Folder names tell seed and case apart, test names cannot contain '-'
+        File scenarioFolder = new File(reproducers, Long.toUnsignedString(seed) + "_" + index);
+        scenarioFolder.mkdirs();
+        String name = "fuzz" + index;
+        Files.write(new File(scenarioFolder, name + "-board.txt").toPath(), board);
+        Files.write(new File(scenarioFolder, name + "-input.txt").toPath(), inputs);
+        Files.write(new File(scenarioFolder, name + "-expectedOutput.txt").toPath(),
+                MinesweeperOracle.play(String.join("\n", board) + "\n", inputs).lines()
+                        .collect(Collectors.toList()),
+                StandardCharsets.UTF_8);
+        return scenarioFolder;
+    }
+}
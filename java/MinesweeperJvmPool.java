@@ -0,0 +1,129 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A pool of JVMs that are already started with the classpath of
+ * MINESWEEPER_HOME and wait for the go signal of PooledMinesweeperLauncher.
+ * </br>
+ *
+ * Each JVM runs exactly one execution and is replaced in the background, so
+ * executions are as isolated as with forking, but the tests do not wait for the
+ * JVM to start.
+ *
+ */
+public class MinesweeperJvmPool {
+
+    private static MinesweeperJvmPool instance;
+
+    private final BlockingQueue<Process> warmProcesses = new LinkedBlockingQueue<Process>();
+
+    private final ExecutorService starter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "minesweeper-jvm-pool");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final List<String> command;
+
+    private MinesweeperJvmPool(int size) {
+        this.command = getCommand();
+        for (int i = 0; i < size; i++) {
+            replenish();
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+    }
+
+    public static synchronized MinesweeperJvmPool getInstance() {
+        if (instance == null) {
+            instance = new MinesweeperJvmPool(MinesweeperTestUtils.getPoolSize());
+        }
+        return instance;
+    }
+
+    /**
+     * Take a warm JVM from the pool and start Minesweeper on it with the given
+     * MINESWEEPER_HOME and program arguments. The caller owns the returned process
+     * and provides its inputs.
+     *
+     * @param minesweeperHome
+     * @param programArguments
+     * @return
+     * @throws IOException
+     */
+    public Process acquire(File minesweeperHome, List<String> programArguments) throws IOException {
+        Process process = warmProcesses.poll();
+        replenish();
+
+        if (process == null || !process.isAlive()) {
+            // The pool cannot keep up, so pay for the startup this time
+            process = start();
+        }
+
+        StringBuilder goSignal = new StringBuilder();
+        goSignal.append(minesweeperHome.getPath()).append('\n');
+        goSignal.append(programArguments.size()).append('\n');
+        for (String argument : programArguments) {
+            goSignal.append(argument).append('\n');
+        }
+        OutputStream stdin = process.getOutputStream();
+        stdin.write(goSignal.toString().getBytes(StandardCharsets.UTF_8));
+        stdin.flush();
+
+        return process;
+    }
+
+    private void replenish() {
+        starter.submit(() -> {
+            try {
+                warmProcesses.add(start());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private Process start() throws IOException {
+        return new ProcessBuilder(command).start();
+    }
+
+    private void shutdown() {
+        starter.shutdownNow();
+        Process process;
+        while ((process = warmProcesses.poll()) != null) {
+            process.destroyForcibly();
+        }
+    }
+
+    private static List<String> getCommand() {
+        List<String> _args = new ArrayList<String>();
+        _args.add(MinesweeperTestUtils.getJava());
+        _args.addAll(MinesweeperTestUtils.getJvmProfile().getJvmOptions());
+        _args.add(MinesweeperTestUtils.getEncoding());
+        _args.add("-D" + MinesweeperTestUtils.MINESWEEPER_HOME + "=" + MinesweeperTestUtils.getMinesweeper());
+
+        // Minesweeper comes first, the launcher is only needed to wait for the go signal
+        _args.add("-cp");
+        _args.add(MinesweeperTestUtils.getMinesweeper() + File.pathSeparator + getLauncherLocation());
+        _args.add(PooledMinesweeperLauncher.class.getName());
+        _args.add(MinesweeperTestUtils.getMinesweeperClassName());
+        return _args;
+    }
+
+    private static String getLauncherLocation() {
+        try {
+            return new File(PooledMinesweeperLauncher.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .getAbsolutePath();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Cannot locate " + PooledMinesweeperLauncher.class.getName(), e);
+        }
+    }
+}
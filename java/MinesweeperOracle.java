@@ -0,0 +1,445 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A reference implementation of Minesweeper that prints exactly the frames and
+ * messages that the tests expect, so expected outputs can be computed instead
+ * of stored. </br>
+ *
+ * The board is kept as bitsets, one int for each row (boards have at most 20
+ * columns): mines, revealed and flagged squares, and squares without mines
+ * around them. Revealing a square reveals its neighbors with a bitwise flood
+ * fill that grows, one wave at the time, from the squares without mines around
+ * them that the move revealed. </br>
+ *
+ * The main method behaves like a Minesweeper submission (exit codes, config.ini
+ * and the fancy plugin included), so the tests can run against it with
+ * -Dminesweeper.home pointing to this folder and
+ * -Dminesweeper.name=MinesweeperOracle.
+ *
+ */
+public class MinesweeperOracle {
+
+    // Changes to what the oracle prints must change this, see ScenarioCorpus
+    public final static int VERSION = 1;
+
+    public final static int MAX_ROWS = 20;
+    public final static int MAX_COLUMNS = 20;
+
+    public final static String WON = "You Won!";
+    public final static String LOST = "You Lost!";
+    public final static String NOT_VALID = "The provided input is not valid!";
+    public final static String NOT_ENOUGH_INPUTS = "Not enough inputs!";
+
+    // ANSI colors of the fancy plugin, by number of mines around a square
+    final static String[] COLORS = { "", "34", "32", "31", "35", "37", "33", "90", "36" };
+
+    public enum Outcome {
+        CONTINUE, NOT_VALID, WON, LOST
+    }
+
+    private final int rows;
+    private final int columns;
+    private final int fullRow;
+
+    private final int[] mines;
+    private final int[] zeros;
+    private final byte[] counts;
+    private final int safeSquares;
+
+    private final int[] revealed;
+    private final int[] flagged;
+
+    private boolean fancy = false;
+    private String mineSymbol = "*";
+    private String flagSymbol = "¶";
+
+    // Borders do not change during a game
+    private final String top;
+    private final String separator;
+    private final String bottom;
+
+    /**
+     * Start a game on the given board, one string of '.' and '*' for each row.
+     *
+     * @param board a board accepted by parseBoard
+     */
+    public MinesweeperOracle(List<String> board) {
+        this.rows = board.size();
+        this.columns = board.get(0).length();
+        this.fullRow = (1 << columns) - 1;
+        this.mines = new int[rows];
+        this.zeros = new int[rows];
+        this.counts = new byte[rows * columns];
+        this.revealed = new int[rows];
+        this.flagged = new int[rows];
+
+        int safe = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (board.get(r).charAt(c) == '*') {
+                    mines[r] |= 1 << c;
+                } else {
+                    safe++;
+                }
+            }
+        }
+        this.safeSquares = safe;
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                int count = 0;
+                for (int i = Math.max(0, r - 1); i <= Math.min(rows - 1, r + 1); i++) {
+                    count += Integer.bitCount(mines[i] & (7 << c >> 1) & fullRow);
+                }
+                counts[r * columns + c] = (byte) count;
+                if (count == 0 && (mines[r] & 1 << c) == 0) {
+                    zeros[r] |= 1 << c;
+                }
+            }
+        }
+
+        this.top = "┌" + "───┬".repeat(columns - 1) + "───┐\n";
+        this.separator = "├" + "───┼".repeat(columns - 1) + "───┤\n";
+        this.bottom = "└" + "───┴".repeat(columns - 1) + "───┘\n";
+    }
+
+    // What a player sees, for MinesweeperSolver
+
+    int getRows() {
+        return rows;
+    }
+
+    int getColumns() {
+        return columns;
+    }
+
+    int getRevealed(int row) {
+        return revealed[row];
+    }
+
+    int getCount(int row, int column) {
+        return counts[row * columns + column];
+    }
+
+    /**
+     * Render squares like the fancy plugin does
+     *
+     * @param mineSymbol
+     * @param flagSymbol
+     */
+    public void setFancy(String mineSymbol, String flagSymbol) {
+        this.fancy = true;
+        this.mineSymbol = mineSymbol;
+        this.flagSymbol = flagSymbol;
+    }
+
+    /**
+     * Check the content of a board configuration file.
+     *
+     * @param content
+     * @return the rows of the board or null if the board is not valid
+     */
+    public static List<String> parseBoard(String content) {
+        if (content.isEmpty() || !content.endsWith("\n")) {
+            return null;
+        }
+        List<String> board = Arrays.asList(content.substring(0, content.length() - 1).split("\n", -1));
+        int columns = board.get(0).length();
+        if (board.size() > MAX_ROWS || columns > MAX_COLUMNS || columns == 0 || board.size() * columns < 2) {
+            return null;
+        }
+        boolean onlyMines = true;
+        for (String row : board) {
+            if (row.length() != columns) {
+                return null;
+            }
+            for (int c = 0; c < columns; c++) {
+                char square = row.charAt(c);
+                if (square != '*' && square != '.') {
+                    return null;
+                }
+                onlyMines = onlyMines && square == '*';
+            }
+        }
+        return onlyMines ? null : board;
+    }
+
+    /**
+     * Apply the given input.
+     *
+     * @param input
+     * @return
+     */
+    public Outcome move(String input) {
+        // Same as matching \s*(\d+)\s+(\d+)\s+([RF])\s*
+        int length = input.length();
+        int i = skipSpaces(input, 0);
+        int start = i;
+        i = skipDigits(input, i);
+        int row = toCoordinate(input, start, i, rows);
+        start = i;
+        i = skipSpaces(input, i);
+        if (row < 0 || i == start) {
+            return Outcome.NOT_VALID;
+        }
+        start = i;
+        i = skipDigits(input, i);
+        int column = toCoordinate(input, start, i, columns);
+        start = i;
+        i = skipSpaces(input, i);
+        if (column < 0 || i == start || i == length) {
+            return Outcome.NOT_VALID;
+        }
+        char action = input.charAt(i);
+        if ((action != 'R' && action != 'F') || skipSpaces(input, i + 1) != length) {
+            return Outcome.NOT_VALID;
+        }
+
+        int square = 1 << column;
+        if (action == 'F') {
+            // Revealed squares cannot be flagged
+            if ((revealed[row] & square) == 0) {
+                flagged[row] ^= square;
+            }
+            return Outcome.CONTINUE;
+        }
+
+        if ((mines[row] & square) != 0) {
+            return Outcome.LOST;
+        }
+        reveal(row, square);
+
+        int revealedSquares = 0;
+        for (int r = 0; r < rows; r++) {
+            revealedSquares += Integer.bitCount(revealed[r]);
+        }
+        return revealedSquares == safeSquares ? Outcome.WON : Outcome.CONTINUE;
+    }
+
+    /**
+     * Reveal the given square, even if flagged, and flood fill from it.
+     */
+    private void reveal(int row, int square) {
+        flagged[row] &= ~square;
+        revealed[row] |= square;
+
+        // The squares revealed by the last wave
+        int[] wave = new int[rows];
+        wave[row] = square;
+        int first = row;
+        int last = row;
+        while (first <= last) {
+            int[] next = new int[rows];
+            int nextFirst = rows;
+            int nextLast = -1;
+            for (int r = Math.max(0, first - 1); r <= Math.min(rows - 1, last + 1); r++) {
+                int around = 0;
+                for (int i = Math.max(0, r - 1); i <= Math.min(rows - 1, r + 1); i++) {
+                    int spreading = wave[i] & zeros[i];
+                    around |= spreading | spreading << 1 | spreading >>> 1;
+                }
+                // Flagged squares stop the flood
+                next[r] = around & fullRow & ~mines[r] & ~flagged[r] & ~revealed[r];
+                if (next[r] != 0) {
+                    revealed[r] |= next[r];
+                    nextFirst = Math.min(nextFirst, r);
+                    nextLast = r;
+                }
+            }
+            wave = next;
+            first = nextFirst;
+            last = nextLast;
+        }
+    }
+
+    private static int skipSpaces(String input, int i) {
+        while (i < input.length() && isSpace(input.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // What \s matches
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000b' || c == '\f' || c == '\r';
+    }
+
+    private static int skipDigits(String input, int i) {
+        while (i < input.length() && input.charAt(i) >= '0' && input.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return the 0-based coordinate in input[start, end) or -1 if missing or not
+     *         on the board
+     */
+    private static int toCoordinate(String input, int start, int end, int size) {
+        if (start == end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + input.charAt(i) - '0';
+            if (value > size) {
+                return -1;
+            }
+        }
+        return value - 1;
+    }
+
+    /**
+     * Append the current frame with the given message to out.
+     *
+     * @param out
+     * @param lost  shows the mines
+     * @param message
+     */
+    public void render(StringBuilder out, boolean lost, String message) {
+        out.append(top);
+        for (int r = 0; r < rows; r++) {
+            out.append('│');
+            for (int c = 0; c < columns; c++) {
+                int square = 1 << c;
+                out.append(' ');
+                if (lost && (mines[r] & square) != 0) {
+                    out.append(mineSymbol);
+                } else if ((flagged[r] & square) != 0) {
+                    out.append(flagSymbol);
+                } else if ((revealed[r] & square) == 0) {
+                    out.append(' ');
+                } else if ((zeros[r] & square) != 0) {
+                    out.append('▓');
+                } else if (fancy) {
+                    int count = counts[r * columns + c];
+                    out.append("\u001B[").append(COLORS[count]).append('m').append(count).append("\u001B[0m");
+                } else {
+                    out.append(counts[r * columns + c]);
+                }
+                out.append(" │");
+            }
+            out.append('\n');
+            out.append(r == rows - 1 ? bottom : separator);
+        }
+
+        int width = Math.max(4 * columns - 1, message.length());
+        out.append('╔').append("═".repeat(width)).append("╗\n");
+        out.append('║').append(message).append(" ".repeat(width - message.length())).append("║\n");
+        out.append('╚').append("═".repeat(width)).append("╝\n");
+    }
+
+    /**
+     * Play a whole game and append what Minesweeper prints to out.
+     *
+     * @param out
+     * @param inputs
+     */
+    public void play(StringBuilder out, Iterator<String> inputs) {
+        render(out, false, "");
+        while (true) {
+            out.append('>');
+            if (!inputs.hasNext()) {
+                render(out, false, NOT_ENOUGH_INPUTS);
+                return;
+            }
+            switch (move(inputs.next())) {
+            case NOT_VALID:
+                render(out, false, NOT_VALID);
+                break;
+            case LOST:
+                render(out, true, LOST);
+                return;
+            case WON:
+                render(out, false, WON);
+                return;
+            default:
+                render(out, false, "");
+                break;
+            }
+        }
+    }
+
+    /**
+     * Return what Minesweeper prints, with the default plugin, for the given
+     * content of the board configuration file and inputs.
+     *
+     * @param boardContent
+     * @param inputs
+     * @return the output, or an empty string if the board is not valid
+     */
+    public static String play(String boardContent, List<String> inputs) {
+        List<String> board = parseBoard(boardContent);
+        if (board == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder();
+        new MinesweeperOracle(board).play(out, inputs.iterator());
+        return out.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || !new File(args[0]).exists()) {
+            System.exit(1);
+        }
+        File boardCfgFile = new File(args[0]);
+        if (!boardCfgFile.isFile() || !boardCfgFile.getName().toLowerCase().matches(".+\\.cfg")) {
+            System.exit(2);
+        }
+        List<String> board = parseBoard(new String(Files.readAllBytes(boardCfgFile.toPath()), StandardCharsets.UTF_8));
+        if (board == null) {
+            System.exit(2);
+        }
+
+        MinesweeperOracle game = new MinesweeperOracle(board);
+        String home = System.getProperty("minesweeper.home");
+        File configIni = home != null ? new File(home, "config.ini") : null;
+        if (configIni != null && configIni.isFile()) {
+            Properties config = new Properties();
+            try (Reader reader = new InputStreamReader(new FileInputStream(configIni), StandardCharsets.UTF_8)) {
+                config.load(reader);
+            }
+            if ("fancy".equals(config.getProperty("plugin-name"))) {
+                game.setFancy(config.getProperty("mine-symbol", "*"), config.getProperty("flag-symbol", "¶"));
+            }
+        }
+
+        PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8.name());
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        StringBuilder frame = new StringBuilder();
+        game.render(frame, false, "");
+        while (true) {
+            frame.append('>');
+            out.print(frame);
+            frame.setLength(0);
+
+            String input = in.readLine();
+            if (input == null) {
+                game.render(frame, false, NOT_ENOUGH_INPUTS);
+                break;
+            }
+            Outcome outcome = game.move(input);
+            game.render(frame, outcome == Outcome.LOST,
+                    outcome == Outcome.NOT_VALID ? NOT_VALID
+                            : outcome == Outcome.LOST ? LOST : outcome == Outcome.WON ? WON : "");
+            if (outcome == Outcome.LOST || outcome == Outcome.WON) {
+                break;
+            }
+        }
+        out.print(frame);
+        out.flush();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,345 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Results of executions of Minesweeper, stored on disk under a hash of
+ * everything that determines them. </br>
+ *
+ * When enabled with -Dminesweeper.cache=true, execute() looks up the result of
+ * an execution before running it, and stores it afterwards. The key is a hash
+ * of the class files in MINESWEEPER_HOME, its config.ini, how Minesweeper runs
+ * (the execution mode, the options of the JVM profile and whether CDS is
+ * enabled), the program arguments (for a file, its name and content, so the
+ * same board written to different temporary folders is the same argument), the
+ * inputs and the timeout. The same execution in another test, or in another
+ * run of the tests with the same class files, is not executed again. This
+ * assumes that Minesweeper prints the same output for the same inputs, and that
+ * it does not print the folder of the board it reads. </br>
+ *
+ * Results are stored in -Dminesweeper.cache.dir (by default, in the temporary
+ * folder), one file each. When they take more than -Dminesweeper.cache.size
+ * megabytes (default 64), the least recently used results are deleted. Results
+ * of executions that failed, timed out, or that an observer stopped early are
+ * not stored.
+ *
+ */
+public class MinesweeperResultCache {
+
+    public final static String CACHE = "minesweeper.cache";
+    public final static String CACHE_DIR = "minesweeper.cache.dir";
+    public final static String CACHE_SIZE = "minesweeper.cache.size";
+
+    public final static int DEFAULT_CACHE_SIZE = 64;
+
+    private final static String SUFFIX = ".result";
+    // Change it when the key or the format of the files changes
+    private final static int VERSION = 3;
+
+    /**
+     * What identifies the class files of a MINESWEEPER_HOME without reading them,
+     * and the hash of their content
+     */
+    private static final class Stamp {
+
+        final List<String> files;
+        final byte[] digest;
+
+        Stamp(List<String> files, byte[] digest) {
+            this.files = files;
+            this.digest = digest;
+        }
+    }
+
+    private final static Map<File, Stamp> stamps = new ConcurrentHashMap<File, Stamp>();
+
+    // Size of each stored result, least recently used first. Loaded from the
+    // folder on first use
+    private static LinkedHashMap<String, Long> entries;
+    private static long size;
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(CACHE);
+    }
+
+    public static File getFolder() {
+        return new File(System.getProperty(CACHE_DIR,
+                new File(System.getProperty("java.io.tmpdir"), "minesweeper-cache").getPath()));
+    }
+
+    /**
+     * Return the maximum size of the stored results, in bytes
+     *
+     * @return
+     */
+    public static long getMaxSize() {
+        return Long.getLong(CACHE_SIZE, DEFAULT_CACHE_SIZE) * 1024 * 1024;
+    }
+
+    /**
+     * Return the key of the execution with the given MINESWEEPER_HOME, program
+     * arguments, inputs and timeout.
+     *
+     * @param minesweeperHome
+     * @param commandLineInputs
+     * @param inputSequence
+     * @param timeoutInSeconds
+     * @return the key, or null if the cache is not enabled or the execution cannot
+     *         be identified
+     */
+    static String getKey(File minesweeperHome, List<File> commandLineInputs, List<String> inputSequence,
+            int timeoutInSeconds) {
+        if (!isEnabled()) {
+            return null;
+        }
+        try {
+            MessageDigest digest = newDigest();
+            update(digest, "v" + VERSION);
+            update(digest, MinesweeperTestUtils.getJava());
+            update(digest, MinesweeperTestUtils.getMinesweeperClassName());
+            // How Minesweeper runs changes its error output, e.g., JVM warnings and
+            // out of memory errors
+            update(digest, "mode " + MinesweeperTestUtils.getExecutionMode());
+            update(digest, "jvm " + String.join(" ", MinesweeperTestUtils.getJvmProfile().getJvmOptions()));
+            update(digest, "cds " + MinesweeperCds.isEnabled());
+            digest.update(getClassFilesDigest(minesweeperHome));
+
+            File configIni = new File(minesweeperHome, "config.ini");
+            if (configIni.isFile()) {
+                update(digest, "config.ini");
+                update(digest, Files.readAllBytes(configIni.toPath()));
+            } else {
+                update(digest, "no config.ini");
+            }
+
+            if (commandLineInputs != null) {
+                for (File f : commandLineInputs) {
+                    if (f == null) {
+                        // Not passed at all
+                        continue;
+                    }
+                    if (f.isFile()) {
+                        update(digest, "file " + f.getName());
+                        update(digest, Files.readAllBytes(f.toPath()));
+                    } else {
+                        // Minesweeper may print the path it could not read
+                        update(digest, (f.isDirectory() ? "folder " : "missing ") + f.getAbsolutePath());
+                    }
+                }
+            }
+
+            update(digest, "inputs " + inputSequence.size());
+            for (String input : inputSequence) {
+                update(digest, input);
+            }
+            update(digest, "timeout " + timeoutInSeconds);
+
+            StringBuilder key = new StringBuilder();
+            for (byte b : Arrays.copyOf(digest.digest(), 16)) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (IOException e) {
+            System.err.println("Cannot cache the execution in " + minesweeperHome + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] getClassFilesDigest(File minesweeperHome) throws IOException {
+        List<File> classFiles = MinesweeperCds.listClassFiles(minesweeperHome);
+        List<String> files = new ArrayList<String>();
+        for (File classFile : classFiles) {
+            files.add(classFile.getPath() + ":" + classFile.length() + ":" + classFile.lastModified());
+        }
+
+        Stamp stamp = stamps.get(minesweeperHome);
+        if (stamp == null || !stamp.files.equals(files)) {
+            MessageDigest digest = newDigest();
+            for (File classFile : classFiles) {
+                update(digest, MinesweeperCds.relativize(minesweeperHome, classFile));
+                update(digest, Files.readAllBytes(classFile.toPath()));
+            }
+            stamp = new Stamp(files, digest.digest());
+            stamps.put(minesweeperHome, stamp);
+        }
+        return stamp.digest;
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // Prefix the length, so the boundaries between the parts are part of the key
+    private static void update(MessageDigest digest, byte[] bytes) {
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        update(digest, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Return the stored result for the given key.
+     *
+     * @param key
+     * @return a new result with the exitCode, stdOut, stdError and loadedClasses
+     *         of the stored one, or null if there is none
+     */
+    static ExecutionResult get(String key) {
+        File file = new File(getFolder(), key + SUFFIX);
+        synchronized (MinesweeperResultCache.class) {
+            load();
+            if (entries.get(key) == null && !file.isFile()) {
+                return null;
+            }
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            int exitCode = in.readInt();
+            byte[] stdOut = new byte[in.readInt()];
+            in.readFully(stdOut);
+            String stdError = MinesweeperWorker.readString(in);
+            List<String> loadedClasses = in.readBoolean() ? MinesweeperWorker.readStrings(in) : null;
+
+            // Used now, so evicted last
+            file.setLastModified(System.currentTimeMillis());
+            synchronized (MinesweeperResultCache.class) {
+                if (entries.get(key) == null) {
+                    // Stored by another run of the tests
+                    add(key, file.length());
+                }
+            }
+
+            ExecutionResult result = new ExecutionResult(exitCode, stdOut, stdError);
+            result.put(ExecutionResult.CACHED, true);
+            if (loadedClasses != null) {
+                result.put(ExecutionResult.LOADED_CLASSES, loadedClasses);
+            }
+            return result;
+        } catch (NoSuchFileException e) {
+            // Evicted in the meantime
+            return null;
+        } catch (IOException e) {
+            System.err.println("Cannot read the cached result " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store the given result under the given key, and evict the least recently
+     * used results if they take too much space.
+     *
+     * @param key
+     * @param result
+     */
+    static void put(String key, ExecutionResult result) {
+        File folder = getFolder();
+        File file = new File(folder, key + SUFFIX);
+        try {
+            folder.mkdirs();
+            // Other test runs might store the same result at the same time
+            File temp = File.createTempFile(key, ".tmp", folder);
+            try {
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+                    out.writeInt(VERSION);
+                    out.writeInt(result.getExitCode());
+                    ByteBuffer stdOutBytes = result.getStdOutBytes();
+                    byte[] stdOut = new byte[stdOutBytes.remaining()];
+                    stdOutBytes.get(stdOut);
+                    out.writeInt(stdOut.length);
+                    out.write(stdOut);
+                    MinesweeperWorker.writeString(out, result.getStdError() == null ? "" : result.getStdError());
+                    out.writeBoolean(result.getLoadedClasses() != null);
+                    if (result.getLoadedClasses() != null) {
+                        MinesweeperWorker.writeStrings(out, result.getLoadedClasses());
+                    }
+                }
+                move(temp, file);
+            } finally {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot cache the result in " + file + ": " + e.getMessage());
+            return;
+        }
+
+        List<File> evicted = new ArrayList<File>();
+        synchronized (MinesweeperResultCache.class) {
+            load();
+            add(key, file.length());
+            long maxSize = getMaxSize();
+            Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+            while (size > maxSize && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(key)) {
+                    // Keep at least the result just stored
+                    continue;
+                }
+                size -= entry.getValue();
+                evicted.add(new File(folder, entry.getKey() + SUFFIX));
+                eldest.remove();
+            }
+        }
+        evicted.forEach(File::delete);
+    }
+
+    private static void add(String key, long length) {
+        Long previous = entries.put(key, length);
+        size += length - (previous == null ? 0 : previous);
+    }
+
+    /**
+     * List the results stored by earlier runs, least recently used first
+     */
+    private static void load() {
+        if (entries != null) {
+            return;
+        }
+        entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        size = 0;
+        File[] files = getFolder().listFiles((folder, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            add(file.getName().substring(0, file.getName().length() - SUFFIX.length()), file.length());
+        }
+    }
+
+    private static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runner.PSTestRunner;
+import org.junit.runners.model.Statement;
+
+/**
+ * A private copy of MINESWEEPER_HOME for each test that runs at the same time
+ * as others, so tests can write their own config.ini without stepping on each
+ * other. </br>
+ *
+ * Use it as a rule in the test classes: the rule leases a sandbox before
+ * the @Before methods and gives it back after the @After methods, and
+ * MinesweeperTestUtils.getMinesweeperHome() returns it in between. Sandboxes
+ * are reused by later tests, so there are only as many of them as tests
+ * running at the same time. </br>
+ *
+ * Sandboxes are created by hard-linking the files of MINESWEEPER_HOME (or
+ * copying them if the file system does not support links), except config.ini.
+ * Sandboxing is enabled with -Dminesweeper.sandbox=true, and always when tests
+ * run in parallel.
+ *
+ */
+public class MinesweeperSandbox implements TestRule {
+
+    public final static String SANDBOX = "minesweeper.sandbox";
+
+    private final static Queue<File> freeSandboxes = new ConcurrentLinkedQueue<File>();
+
+    private final static List<File> allSandboxes = Collections.synchronizedList(new ArrayList<File>());
+
+    // Inheritable, so the thread that JUnit starts for tests with a timeout sees it
+    private final static InheritableThreadLocal<File> leasedSandbox = new InheritableThreadLocal<File>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            synchronized (allSandboxes) {
+                for (File sandbox : allSandboxes) {
+                    delete(sandbox.toPath());
+                }
+            }
+        }));
+    }
+
+    public static boolean isEnabled() {
+        // Other shards might use the same MINESWEEPER_HOME at the same time
+        return Boolean.getBoolean(SANDBOX) || Integer.getInteger(PSTestRunner.PARALLELISM, 1) > 1
+                || System.getProperty(PSTestRunner.SHARD) != null;
+    }
+
+    /**
+     * Return the sandbox leased by the current test, if any
+     *
+     * @return
+     */
+    public static File current() {
+        return leasedSandbox.get();
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        if (!isEnabled()) {
+            return base;
+        }
+        return new Statement() {
+
+            @Override
+            public void evaluate() throws Throwable {
+                File sandbox = freeSandboxes.poll();
+                if (sandbox == null) {
+                    sandbox = create(new File(MinesweeperTestUtils.getMinesweeper()).toPath());
+                }
+                leasedSandbox.set(sandbox);
+                try {
+                    base.evaluate();
+                } finally {
+                    leasedSandbox.remove();
+                    freeSandboxes.add(sandbox);
+                }
+            }
+        };
+    }
+
+    private static File create(Path minesweeperHome) throws IOException {
+        Path sandbox = Files.createTempDirectory("minesweeper-home");
+        allSandboxes.add(sandbox.toFile());
+
+        try (Stream<Path> files = Files.walk(minesweeperHome)) {
+            files.forEach(source -> {
+                Path target = sandbox.resolve(minesweeperHome.relativize(source).toString());
+                try {
+                    if (Files.isDirectory(source)) {
+                        Files.createDirectories(target);
+                    } else if (!source.getParent().equals(minesweeperHome)
+                            || !source.getFileName().toString().equals("config.ini")) {
+                        // Each test writes its own config.ini
+                        link(source, target);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        return sandbox.toFile();
+    }
+
+    private static void link(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(source, target);
+        }
+    }
+
+    private static void delete(Path sandbox) {
+        try (Stream<Path> files = Files.walk(sandbox)) {
+            // Children before parents. Deleting a link does not touch the original file
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            // Nothing else to do, it is in the temp folder anyway
+        }
+    }
+}
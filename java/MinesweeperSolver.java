@@ -0,0 +1,396 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Finds a sequence of moves that wins a board, playing like a player who sees
+ * only the revealed squares. </br>
+ *
+ * The game is played on MinesweeperOracle. After the first move, which reveals
+ * a square without mines around it if there is one, each revealed number is a
+ * constraint: its covered neighbors that are not known mines hide the mines
+ * that are not known yet. A constraint stores those neighbors as a bitset in a
+ * long, 20 bits for each of its (up to) 3 rows. Constraints are propagated
+ * until nothing changes:
+ * <ul>
+ * <li>if no mines are left, all the neighbors are safe;</li>
+ * <li>if the mines left are as many as the neighbors, all of them are
+ * mines;</li>
+ * <li>if the neighbors of a constraint are a subset of those of another one,
+ * the difference hides the difference of the mines left, so it is safe or all
+ * mines in the same way.</li>
+ * </ul>
+ * Safe squares are revealed and mines are flagged as soon as they are known.
+ * When propagation gets stuck, the solver reveals a square that it knows from
+ * the board to be safe and counts it as a guess, so every board gets a winning
+ * sequence. </br>
+ *
+ * Usage:
+ *
+ * <pre>
+ * MinesweeperSolver board-file           prints the moves
+ * MinesweeperSolver scenarios-folder [--threads=N]
+ * </pre>
+ *
+ * The second form writes the moves as the -input.txt file of each scenario in
+ * the folder (layout of test_scenarios) and, if the scenario has an
+ * -expectedOutput.txt file, replaces it with the output of the oracle for the
+ * new moves.
+ *
+ */
+public class MinesweeperSolver {
+
+    // Bits of a row in a constraint
+    private final static int LANE = 20;
+    private final static long LANE_MASK = (1L << LANE) - 1;
+
+    /**
+     * A winning sequence of moves
+     */
+    public static final class Solution {
+
+        public final List<String> moves;
+        // Reveals that could not be deduced
+        public final int guesses;
+
+        Solution(List<String> moves, int guesses) {
+            this.moves = moves;
+            this.guesses = guesses;
+        }
+    }
+
+    /**
+     * The covered squares around a revealed number that are not known mines, and
+     * how many mines they hide
+     */
+    private static final class Constraint {
+
+        final int top;
+        final int column;
+        final long squares;
+        final int mines;
+
+        Constraint(int top, int column, long squares, int mines) {
+            this.top = top;
+            this.column = column;
+            this.squares = squares;
+            this.mines = mines;
+        }
+    }
+
+    private final MinesweeperOracle game;
+    private final int rows;
+    private final int columns;
+    private final int fullRow;
+
+    private final int[] mines;
+    private final int[] knownMines;
+    private final int[] knownSafe;
+    private final int[] flagged;
+
+    private final List<String> moves = new ArrayList<String>();
+    private int guesses = 0;
+    private boolean won = false;
+
+    private MinesweeperSolver(List<String> board) {
+        this.game = new MinesweeperOracle(board);
+        this.rows = game.getRows();
+        this.columns = game.getColumns();
+        this.fullRow = (1 << columns) - 1;
+        this.mines = new int[rows];
+        this.knownMines = new int[rows];
+        this.knownSafe = new int[rows];
+        this.flagged = new int[rows];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (board.get(r).charAt(c) == '*') {
+                    mines[r] |= 1 << c;
+                }
+            }
+        }
+    }
+
+    /**
+     * Find a winning sequence of moves for the given board.
+     *
+     * @param board a board accepted by MinesweeperOracle.parseBoard
+     * @return
+     */
+    public static Solution solve(List<String> board) {
+        MinesweeperSolver solver = new MinesweeperSolver(board);
+        solver.solve();
+        return new Solution(solver.moves, solver.guesses);
+    }
+
+    private void solve() {
+        // The first move is not a guess: players always start somewhere
+        reveal(pickSafeSquare());
+        while (!won) {
+            if (!propagate()) {
+                guesses++;
+                reveal(pickSafeSquare());
+            }
+        }
+    }
+
+    /**
+     * Propagate the constraints once, then reveal the safe squares and flag the
+     * mines found.
+     *
+     * @return whether something was found
+     */
+    private boolean propagate() {
+        List<Constraint> constraints = new ArrayList<Constraint>();
+        for (int r = 0; r < rows; r++) {
+            int numbers = game.getRevealed(r);
+            while (numbers != 0) {
+                int c = Integer.numberOfTrailingZeros(numbers);
+                numbers &= numbers - 1;
+                Constraint constraint = constraintOf(r, c);
+                if (constraint != null) {
+                    constraints.add(constraint);
+                }
+            }
+        }
+
+        for (Constraint constraint : constraints) {
+            int size = Long.bitCount(constraint.squares);
+            if (constraint.mines == 0) {
+                mark(knownSafe, constraint.top, constraint.squares);
+            } else if (constraint.mines == size) {
+                mark(knownMines, constraint.top, constraint.squares);
+            }
+        }
+
+        // Constraints are sorted by row, so only close ones are compared
+        for (int i = 0; i < constraints.size(); i++) {
+            Constraint a = constraints.get(i);
+            for (int j = i + 1; j < constraints.size() && constraints.get(j).top - a.top <= 2; j++) {
+                Constraint b = constraints.get(j);
+                if (Math.abs(b.column - a.column) > 2) {
+                    continue;
+                }
+                subset(a, b);
+                subset(b, a);
+            }
+        }
+
+        boolean found = false;
+        for (int r = 0; r < rows; r++) {
+            int newMines = knownMines[r] & ~flagged[r];
+            while (newMines != 0) {
+                int c = Integer.numberOfTrailingZeros(newMines);
+                newMines &= newMines - 1;
+                moves.add((r + 1) + " " + (c + 1) + " F");
+                flagged[r] |= 1 << c;
+                found = true;
+            }
+        }
+        for (int r = 0; r < rows && !won; r++) {
+            // Earlier reveals might have revealed these already
+            int safe;
+            while (!won && (safe = knownSafe[r] & ~game.getRevealed(r)) != 0) {
+                reveal(r * columns + Integer.numberOfTrailingZeros(safe));
+                found = true;
+            }
+            knownSafe[r] = 0;
+        }
+        return found;
+    }
+
+    /**
+     * @return the constraint of the revealed square, or null if it has no
+     *         unknown neighbors
+     */
+    private Constraint constraintOf(int row, int column) {
+        int count = game.getCount(row, column);
+        if (count == 0) {
+            return null;
+        }
+        int top = Math.max(0, row - 1);
+        int around = (7 << column >> 1) & fullRow;
+        long squares = 0;
+        int minesLeft = count;
+        for (int r = top; r <= Math.min(rows - 1, row + 1); r++) {
+            int unknown = around & ~game.getRevealed(r) & ~knownMines[r];
+            squares |= (long) unknown << (LANE * (r - top));
+            minesLeft -= Integer.bitCount(around & knownMines[r]);
+        }
+        return squares == 0 ? null : new Constraint(top, column, squares, minesLeft);
+    }
+
+    /**
+     * If the squares of a are a subset of those of b, the rest of b hides
+     * b.mines - a.mines mines.
+     */
+    private void subset(Constraint a, Constraint b) {
+        long aInB = shift(a.squares, a.top - b.top);
+        // Squares of a outside the rows of b are lost by the shift
+        if (Long.bitCount(aInB) != Long.bitCount(a.squares) || (aInB & ~b.squares) != 0) {
+            return;
+        }
+        long rest = b.squares & ~aInB;
+        int minesLeft = b.mines - a.mines;
+        if (rest == 0) {
+            return;
+        }
+        if (minesLeft == 0) {
+            mark(knownSafe, b.top, rest);
+        } else if (minesLeft == Long.bitCount(rest)) {
+            mark(knownMines, b.top, rest);
+        }
+    }
+
+    private static long shift(long squares, int rows) {
+        if (Math.abs(rows) > 2) {
+            return 0;
+        }
+        long shifted = rows >= 0 ? squares << (LANE * rows) : squares >>> (LANE * -rows);
+        return shifted & ((1L << (3 * LANE)) - 1);
+    }
+
+    private void mark(int[] target, int top, long squares) {
+        for (int lane = 0; lane < 3 && top + lane < rows; lane++) {
+            target[top + lane] |= (int) ((squares >>> (LANE * lane)) & LANE_MASK);
+        }
+    }
+
+    /**
+     * @return a covered square without mines, preferring one without mines around
+     *         it
+     */
+    private int pickSafeSquare() {
+        int fallback = -1;
+        for (int r = 0; r < rows; r++) {
+            int safe = ~mines[r] & ~game.getRevealed(r) & fullRow;
+            while (safe != 0) {
+                int c = Integer.numberOfTrailingZeros(safe);
+                safe &= safe - 1;
+                if (game.getCount(r, c) == 0) {
+                    return r * columns + c;
+                }
+                if (fallback < 0) {
+                    fallback = r * columns + c;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    private void reveal(int square) {
+        String move = (square / columns + 1) + " " + (square % columns + 1) + " R";
+        moves.add(move);
+        won = game.move(move) == MinesweeperOracle.Outcome.WON;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: MinesweeperSolver board-file | scenarios-folder [--threads=N]");
+            System.exit(1);
+        }
+
+        File target = new File(args[0]);
+        if (target.isFile()) {
+            List<String> board = MinesweeperOracle
+                    .parseBoard(new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+            if (board == null) {
+                System.err.println("Not a valid board: " + target);
+                System.exit(2);
+            }
+            Solution solution = solve(board);
+            solution.moves.forEach(System.out::println);
+            System.err.println(solution.moves.size() + " moves, " + solution.guesses + " guesses");
+            return;
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--threads=")) {
+                threads = Integer.parseInt(args[i].substring("--threads=".length()));
+            }
+        }
+        File[] scenarioFolders = target.listFiles(File::isDirectory);
+        if (scenarioFolders == null) {
+            System.err.println("Cannot find " + target);
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger logical = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (File scenarioFolder : scenarioFolders) {
+            pool.submit(() -> {
+                try {
+                    Solution solution = label(scenarioFolder);
+                    if (solution == null) {
+                        failures.incrementAndGet();
+                    } else if (solution.guesses == 0) {
+                        logical.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    System.err.println("Cannot solve " + scenarioFolder);
+                    e.printStackTrace();
+                    failures.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        System.out.println("Solved " + (scenarioFolders.length - failures.get()) + " boards ("
+                + logical.get() + " without guesses) in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        System.exit(failures.get() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Write the winning moves for the board of the given scenario as its inputs.
+     *
+     * @param scenarioFolder
+     * @return the solution, or null if the scenario has no valid board
+     * @throws IOException
+     */
+    static Solution label(File scenarioFolder) throws IOException {
+        File boardFile = null;
+        File expectedOutputFile = null;
+        for (File file : scenarioFolder.listFiles()) {
+            if (file.getName().endsWith("-board.txt")) {
+                boardFile = file;
+            } else if (file.getName().endsWith("-expectedOutput.txt")) {
+                expectedOutputFile = file;
+            }
+        }
+        if (boardFile == null) {
+            System.err.println("No board in " + scenarioFolder);
+            return null;
+        }
+
+        // Board files might miss the final newline, like ScenarioTest reads them
+        String content = Files.readAllLines(boardFile.toPath()).stream().map(line -> line + "\n")
+                .collect(Collectors.joining());
+        List<String> board = MinesweeperOracle.parseBoard(content);
+        if (board == null) {
+            System.err.println("Not a valid board: " + boardFile);
+            return null;
+        }
+
+        Solution solution = solve(board);
+        String name = boardFile.getName().substring(0, boardFile.getName().indexOf('-'));
+        Files.write(new File(scenarioFolder, name + "-input.txt").toPath(), solution.moves);
+        if (expectedOutputFile != null) {
+            Files.write(expectedOutputFile.toPath(),
+                    MinesweeperOracle.play(content, solution.moves).lines().collect(Collectors.toList()),
+                    StandardCharsets.UTF_8);
+        }
+        return solution;
+    }
+}
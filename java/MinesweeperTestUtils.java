@@ -8,19 +8,41 @@ import static org.hamcrest.io.FileMatchers.anExistingDirectory;
 import static org.hamcrest.io.FileMatchers.anExistingFile;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.PushbackInputStream;
+import java.io.Reader;
 import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import org.junit.Assume;
+import org.junit.runner.PhaseTimings;
+import org.junit.runner.TestSelection;
 
 public class MinesweeperTestUtils {
 
@@ -30,9 +52,47 @@ public class MinesweeperTestUtils {
     public final static String MINESWEEPER_HOME = "minesweeper.home";
     public final static String MINESWEEPER_NAME = "minesweeper.name";
     public final static String JAVA = "minesweeper.java";
+    public final static String POOL_SIZE = "minesweeper.pool.size";
+    public final static String WORKERS = "minesweeper.workers";
+    public final static String EXECUTION_MODE = "minesweeper.execution";
+    public final static String JVM_PROFILE = "minesweeper.jvm.profile";
+
+    // Values for EXECUTION_MODE. Forking a new JVM for each execution is the default
+    public final static String FORK_EXECUTION = "fork";
+    public final static String IN_PROCESS_EXECUTION = "in-process";
+    public final static String POOLED_EXECUTION = "pool";
+    public final static String WORKER_EXECUTION = "worker";
+
+    public final static int DEFAULT_POOL_SIZE = 2;
+    public final static int DEFAULT_WORKERS = 2;
+
+    // Exit code of executions that could not run
+    public final static int FAILED_EXIT_CODE = -123;
 
     private static String OS = System.getProperty("os.name").toLowerCase();
 
+    // Feed stdin and drain stdout and stderr of the executions at the same time
+    private final static ExecutorService PUMPS = newPumpExecutor();
+
+    // Feature version of each java command, see getJavaVersion()
+    private final static Map<String, Integer> JAVA_VERSIONS = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * An observer of stdOut that can tell why it stopped observing: because it
+     * has seen everything it expected, or because it found a difference. </br>
+     * 
+     * When the MinesweeperResultCache is enabled, an execution whose observer is
+     * satisfied is not stopped but runs to the end, so its result can be cached.
+     */
+    public interface OutputObserver extends Predicate<String> {
+
+        /**
+         * @return whether the observer stopped because it has seen all the output it
+         *         needed, and not because of a difference
+         */
+        boolean isSatisfied();
+    }
+
     /**
      * Check whether the requires system properties are correctly set. Not that if
      * any of those conditions fail the tests will be considered non meaningful;
@@ -57,6 +117,19 @@ public class MinesweeperTestUtils {
         return System.getProperty(MINESWEEPER_HOME);
     }
 
+    /**
+     * Return the MINESWEEPER_HOME that the current test should use: its own
+     * sandbox if MinesweeperSandbox is enabled, getMinesweeper() otherwise.
+     * Executions point Minesweeper to this folder, so config.ini must be written
+     * here.
+     * 
+     * @return
+     */
+    public static File getMinesweeperHome() {
+        File sandbox = MinesweeperSandbox.current();
+        return sandbox != null ? sandbox : new File(getMinesweeper());
+    }
+
     public static String getMinesweeperClassName() {
         final String className = System.getProperty(MINESWEEPER_NAME);
 
@@ -81,6 +154,97 @@ public class MinesweeperTestUtils {
         return System.getProperty(JAVA, "java");
     }
 
+    /**
+     * Return the feature version (e.g., 11) of the JVM that getJava() starts,
+     * which might not be the JVM running the tests. The JVM is asked once for
+     * each java command.
+     *
+     * @return the version, or -1 if it cannot be determined
+     */
+    public static int getJavaVersion() {
+        return JAVA_VERSIONS.computeIfAbsent(getJava(), MinesweeperTestUtils::probeJavaVersion);
+    }
+
+    private static int probeJavaVersion(String java) {
+        try {
+            Process process = new ProcessBuilder(java, "-XshowSettings:properties", "-version")
+                    .redirectErrorStream(true).start();
+            process.getOutputStream().close();
+            String version = null;
+            try (BufferedReader settings = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = settings.readLine()) != null) {
+                    line = line.trim();
+                    if (line.startsWith("java.specification.version =")) {
+                        version = line.substring(line.indexOf('=') + 1).trim();
+                    }
+                }
+            }
+            process.waitFor();
+            if (version == null) {
+                return -1;
+            }
+            // Before Java 9, versions look like 1.8
+            return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    /**
+     * Return the profile of the JVMs that run Minesweeper in their own process,
+     * the default profile if none is set
+     * 
+     * @return
+     */
+    public static JvmProfile getJvmProfile() {
+        final String profile = System.getProperty(JVM_PROFILE);
+
+        if (profile == null || profile.trim().isEmpty())
+            return JvmProfile.forName(JvmProfile.DEFAULT);
+
+        return JvmProfile.forName(profile.trim());
+    }
+
+    /**
+     * Return how many JVMs are kept warm when executions use the pool
+     * 
+     * @return
+     */
+    public static int getPoolSize() {
+        return Integer.getInteger(POOL_SIZE, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Return how many long-lived worker JVMs run executions in worker mode
+     * 
+     * @return
+     */
+    public static int getWorkers() {
+        return Integer.getInteger(WORKERS, DEFAULT_WORKERS);
+    }
+
+    /**
+     * Return how Minesweeper is executed: in a new JVM (fork), in a JVM started
+     * ahead of time (pool), in a long-lived JVM that runs one execution after
+     * the other (worker), or inside the JVM that runs the tests (in-process).
+     * Forking is the default.
+     * 
+     * @return
+     */
+    public static String getExecutionMode() {
+        final String executionMode = System.getProperty(EXECUTION_MODE);
+
+        if (executionMode == null || executionMode.trim().isEmpty())
+            return FORK_EXECUTION;
+
+        return executionMode.trim();
+    }
+
     // https://mkyong.com/java/how-to-detect-os-in-java-systemgetpropertyosname/
     public static boolean isWindows() {
         return (OS.indexOf("win") >= 0);
@@ -107,14 +271,34 @@ public class MinesweeperTestUtils {
      *         the program
      * @throws Exception
      */
-    public static Map<String, Object> execute(File boardCfgFile, List<String> inputSequence) throws Exception {
+    public static ExecutionResult execute(File boardCfgFile, List<String> inputSequence) throws Exception {
         // Use a default timeout of 2 seconds
         return execute(Collections.singletonList(boardCfgFile), inputSequence, 2);
     }
 
     /**
      * Execute the Minesweeper version pointed by getMinesweeper() with the given
-     * program arguments and inputSequence.
+     * program argument and inputSequence, and pass each line of its stdOutput to
+     * the given observer as soon as Minesweeper prints it.
+     * 
+     * @see #execute(List, List, int, Predicate)
+     * 
+     * @param boardCfgFile
+     * @param inputSequence
+     * @param stdOutObserver
+     * @return the exitCode and a copy of the stdOutput and stdError generated by
+     *         the program
+     * @throws Exception
+     */
+    public static ExecutionResult execute(File boardCfgFile, List<String> inputSequence,
+            Predicate<String> stdOutObserver) throws Exception {
+        // Use a default timeout of 2 seconds
+        return execute(Collections.singletonList(boardCfgFile), inputSequence, 2, stdOutObserver);
+    }
+
+    /**
+     * Execute the Minesweeper version pointed by getMinesweeperHome() with the
+     * given program arguments and inputSequence.
      * 
      * 
      * @param commandLineInputs
@@ -123,33 +307,112 @@ public class MinesweeperTestUtils {
      *         the program
      * @throws Exception
      */
-    public static Map<String, Object> execute(List<File> commandLineInputs, List<String> inputSequence,
+    public static ExecutionResult execute(List<File> commandLineInputs, List<String> inputSequence,
             int timeoutInSeconds) throws Exception {
+        return execute(commandLineInputs, inputSequence, timeoutInSeconds, null);
+    }
+
+    /**
+     * Execute the Minesweeper version pointed by getMinesweeperHome() with the
+     * given program arguments and inputSequence, and pass each line of its
+     * stdOutput to the given observer as soon as Minesweeper prints it. When the
+     * observer returns false, Minesweeper is killed, the observer is not called
+     * anymore, and the result contains the output until that moment, unless the
+     * observer is a satisfied OutputObserver and the MinesweeperResultCache is
+     * enabled. </br>
+     * 
+     * Executions that do not run in a separate process (in-process and worker)
+     * pass the lines to the observer after Minesweeper ends. So do the results
+     * found in the MinesweeperResultCache, if enabled.
+     *
+     * @param commandLineInputs
+     * @param inputSequence
+     * @param timeoutInSeconds
+     * @param stdOutObserver   can be null
+     * @return the exitCode and a copy of the stdOutput and stdError generated by
+     *         the program. Executions in a separate process also contain the
+     *         name of the jvmProfile of their JVM
+     * @throws Exception
+     */
+    public static ExecutionResult execute(List<File> commandLineInputs, List<String> inputSequence,
+            int timeoutInSeconds, Predicate<String> stdOutObserver) throws Exception {
+        // Only the phases that can be observed are recorded
+        Map<String, Long> timestamps = new LinkedHashMap<String, Long>();
+        long started = System.nanoTime();
+        timestamps.put(PhaseTimings.STARTED, started);
         try {
-            List<String> _args = new ArrayList<String>();
-            _args.add(getJava());
-            _args.add(getEncoding());
-            // Ensure that environmental variables are set as well
-            _args.add("-D" + MINESWEEPER_HOME + "=" + getMinesweeper());
-
-            // In order to correctly invoke Minesweeper we need to set its class path
-            _args.add("-cp");
-            _args.add(getMinesweeper());
-            _args.add(getMinesweeperClassName());
-            // Pass the configuration files if not null. Null simulates a missing file
-            if (commandLineInputs != null) {
-                for (File f : commandLineInputs) {
-                    if (f != null) {
-                        _args.add(f.getAbsolutePath());
-                    }
+            File minesweeperHome = getMinesweeperHome();
+
+            String cacheKey = MinesweeperResultCache.getKey(minesweeperHome, commandLineInputs, inputSequence,
+                    timeoutInSeconds);
+            if (cacheKey != null) {
+                ExecutionResult cached = MinesweeperResultCache.get(cacheKey);
+                if (cached != null) {
+                    return timed(observe(cached, stdOutObserver), timestamps);
                 }
             }
 
-            // Start the process
-            ProcessBuilder pb = new ProcessBuilder(_args);
-            Process process = pb.start();
+            // Only complete outputs can be cached
+            AtomicBoolean stopped = new AtomicBoolean();
+            AtomicBoolean satisfied = new AtomicBoolean();
+            ExecutionResult result = run(minesweeperHome, commandLineInputs, inputSequence, timeoutInSeconds,
+                    stdOutObserver == null ? null : line -> {
+                        if (satisfied.get() || stdOutObserver.test(line)) {
+                            return true;
+                        }
+                        if (cacheKey != null && stdOutObserver instanceof OutputObserver
+                                && ((OutputObserver) stdOutObserver).isSatisfied()) {
+                            // Read the rest without observing it, to cache the whole output
+                            satisfied.set(true);
+                            return true;
+                        }
+                        stopped.set(true);
+                        return false;
+                    }, timestamps);
+
+            if (cacheKey != null && !stopped.get() && result.getExitCode() != FAILED_EXIT_CODE
+                    && System.nanoTime() - started < TimeUnit.SECONDS.toNanos(timeoutInSeconds)) {
+                MinesweeperResultCache.put(cacheKey, result);
+            }
+            return timed(result, timestamps);
+        } catch (Throwable e) {
+            return timed(failed(e), timestamps);
+        }
+
+    }
 
-            // Provides the inputs
+    /**
+     * Run Minesweeper in the current execution mode, and add the timestamps of the
+     * phases that it can observe.
+     */
+    private static ExecutionResult run(File minesweeperHome, List<File> commandLineInputs,
+            List<String> inputSequence, int timeoutInSeconds, Predicate<String> stdOutObserver,
+            Map<String, Long> timestamps) throws Exception {
+        if (IN_PROCESS_EXECUTION.equals(getExecutionMode())) {
+            if (InProcessMinesweeper.isSupported()) {
+                return observe(InProcessMinesweeper.execute(minesweeperHome, commandLineInputs, inputSequence,
+                        timeoutInSeconds), stdOutObserver);
+            }
+            // Newer JVMs do not let us trap System.exit, so fork instead
+        }
+
+        if (WORKER_EXECUTION.equals(getExecutionMode())) {
+            return observe(MinesweeperWorkerPool.getInstance().execute(minesweeperHome,
+                    getProgramArguments(commandLineInputs), inputSequence, timeoutInSeconds), stdOutObserver);
+        }
+
+        File classLog = newClassLog();
+        Process process = start(minesweeperHome, commandLineInputs, classLog);
+        timestamps.put(PhaseTimings.SPAWNED, System.nanoTime());
+
+        // The deadline starts now, so Minesweeper is stopped even if it never closes
+        // its output
+        ProcessReaper.Watch watch = ProcessReaper.watch(process, timeoutInSeconds);
+
+        // Provides the inputs while capturing the output and error. Reading them
+        // one after the other blocks the process as soon as it fills the pipe of the
+        // other one
+        Future<?> stdinPump = PUMPS.submit(() -> {
             try (PrintWriter stdinWriter = new PrintWriter(new OutputStreamWriter(process.getOutputStream()))) {
                 for (String input : inputSequence) {
                     stdinWriter.println(input);
@@ -157,56 +420,451 @@ public class MinesweeperTestUtils {
                     stdinWriter.flush();
                 }
             }
-
-            // Capture the output and error
-            BufferedReader stdoutReader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
-            StringBuilder builder = new StringBuilder();
-            String line = null;
-            while ((line = stdoutReader.readLine()) != null) {
-                builder.append(line);
-                builder.append(System.getProperty("line.separator"));
+        });
+        AtomicLong firstOutput = new AtomicLong(-1);
+        Future<byte[]> stdOutPump = PUMPS.submit(() -> {
+            // The first byte tells when Minesweeper, and its JVM, is up
+            PushbackInputStream stdOut = new PushbackInputStream(process.getInputStream());
+            int first = stdOut.read();
+            if (first != -1) {
+                firstOutput.set(System.nanoTime());
+                stdOut.unread(first);
             }
+            return readBytes(stdOut, stdOutObserver == null ? null : line -> {
+                if (stdOutObserver.test(line)) {
+                    return true;
+                }
+                // No need to wait for the rest, this also ends the stream
+                ProcessReaper.destroyTreeForcibly(process);
+                return false;
+            });
+        });
+        Future<String> stdErrorPump = PUMPS
+                .submit(() -> readLines(process.getErrorStream(), Charset.defaultCharset()));
 
-            BufferedReader stderrReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-            StringBuilder errorBuilder = new StringBuilder();
-            String errorLine = null;
-            while ((errorLine = stderrReader.readLine()) != null) {
-                errorBuilder.append(errorLine);
-                errorBuilder.append(System.getProperty("line.separator"));
-            }
+        byte[] stdOut = join(stdOutPump, watch);
+        String stdError = join(stdErrorPump, watch);
+        join(stdinPump, watch);
+        watch.done();
+        if (firstOutput.get() >= 0) {
+            timestamps.put(PhaseTimings.FIRST_OUTPUT, firstOutput.get());
+        }
+        timestamps.put(PhaseTimings.DRAINED, System.nanoTime());
+
+        // Available as soon as Minesweeper ends, or is killed by the reaper
+        ExecutionResult result = stdOut != null && stdError != null
+                ? new ExecutionResult(join(watch.getExitCode()), stdOut, stdError)
+                : outputLeftOpen(stdOut != null ? stdOut : new byte[0], timeoutInSeconds);
+        result.put(ExecutionResult.JVM_PROFILE, getJvmProfile().getName());
+        if (classLog != null) {
+            result.put(ExecutionResult.LOADED_CLASSES, readClassLog(minesweeperHome, classLog));
+        }
+
+        return result;
+    }
+
+    /**
+     * Add the "timestamps" of the phases of the execution, i.e., System.nanoTime()
+     * at the end of each one (see PhaseTimings), to the result, and record them for
+     * PSTestRunner, together with the classes that Minesweeper loaded (see
+     * TestSelection).
+     * 
+     * @param result
+     * @param timestamps
+     * @return result
+     */
+    private static ExecutionResult timed(ExecutionResult result, Map<String, Long> timestamps) {
+        timestamps.put(PhaseTimings.REAPED, System.nanoTime());
+        result.put(ExecutionResult.TIMESTAMPS, timestamps);
+        PhaseTimings.record(timestamps);
+        TestSelection.record(result.getLoadedClasses());
+        return result;
+    }
+
+    /**
+     * Execute Minesweeper like execute() does, but provide the inputs like a user
+     * would: each input is sent only after Minesweeper prints the ">" prompt, and
+     * stdin is closed when Minesweeper prompts after the last input. Besides
+     * exitCode, stdOut and stdError, the result contains "moveLatencies": for each
+     * input, the nanoseconds between sending it and reading the end of the frame
+     * that Minesweeper printed in response (i.e., the bottom of its message box).
+     * </br>
+     * 
+     * Executions that do not run in a separate process (in-process and worker)
+     * cannot be driven, so they receive all the inputs upfront and report no
+     * latencies.
+     * 
+     * @param commandLineInputs
+     * @param inputSequence
+     * @param timeoutInSeconds
+     * @return the exitCode, a copy of the stdOutput and stdError generated by the
+     *         program, and the moveLatencies
+     * @throws Exception
+     */
+    public static ExecutionResult interact(List<File> commandLineInputs, List<String> inputSequence,
+            int timeoutInSeconds) throws Exception {
+        if (IN_PROCESS_EXECUTION.equals(getExecutionMode()) || WORKER_EXECUTION.equals(getExecutionMode())) {
+            ExecutionResult result = execute(commandLineInputs, inputSequence, timeoutInSeconds);
+            result.put(ExecutionResult.MOVE_LATENCIES, new ArrayList<Long>());
+            return result;
+        }
 
-            String stdOut = builder.toString();
-            String stdError = errorBuilder.toString();
+        // Filled by the thread that drives Minesweeper
+        List<Long> moveLatencies = Collections.synchronizedList(new ArrayList<Long>());
+        try {
+            File minesweeperHome = getMinesweeperHome();
+            File classLog = newClassLog();
+            Process process = start(minesweeperHome, commandLineInputs, classLog);
+            ProcessReaper.Watch watch = ProcessReaper.watch(process, timeoutInSeconds);
+            Future<String> stdErrorPump = PUMPS
+                    .submit(() -> readLines(process.getErrorStream(), Charset.defaultCharset()));
 
-            // Make sure the subprocess ends, otherwise we might be stuck with zombies at
-            // some point
-            // Taken from:
-            // https://stackoverflow.com/questions/37043114/how-to-stop-a-command-being-executed-after-4-5-seconds-through-process-builder
-            process.waitFor(timeoutInSeconds, TimeUnit.SECONDS); // let the process run for 5 seconds
-            process.destroy(); // tell the process to stop
-            process.waitFor(timeoutInSeconds + 5, TimeUnit.SECONDS); // give it a chance to stop
-            process.destroyForcibly(); // tell the OS to kill the process
-            // Eventuallyu collect the
-            int exitCode = process.waitFor();
+            // The prompt does not end with a new line, so read one char at the time
+            Future<String> driver = PUMPS.submit(() -> {
+                StringBuilder stdOut = new StringBuilder();
+                Iterator<String> inputs = inputSequence.iterator();
+                // Closed in the loop, when the inputs are over, or at the end
+                PrintWriter stdinWriter = new PrintWriter(new OutputStreamWriter(process.getOutputStream()));
+                try (Reader reader = new BufferedReader(
+                        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    int lineStart = 0;
+                    long sentAt = -1;
+                    int c;
+                    while ((c = reader.read()) != -1) {
+                        stdOut.append((char) c);
+                        if (c == '\n') {
+                            if (sentAt >= 0 && stdOut.charAt(lineStart) == '╚') {
+                                // The bottom of the message box closes the frame
+                                moveLatencies.add(System.nanoTime() - sentAt);
+                                sentAt = -1;
+                            }
+                            lineStart = stdOut.length();
+                        } else if (c == '>' && stdOut.length() - 1 == lineStart) {
+                            if (inputs.hasNext()) {
+                                stdinWriter.println(inputs.next());
+                                stdinWriter.flush();
+                                sentAt = System.nanoTime();
+                            } else {
+                                // Like a user that stops typing
+                                stdinWriter.close();
+                            }
+                        }
+                    }
+                } finally {
+                    stdinWriter.close();
+                }
+                return stdOut.toString();
+            });
 
-            Map<String, Object> result = new HashMap<String, Object>();
-            result.put("exitCode", exitCode);
-            result.put("stdOut", stdOut);
-            result.put("stdError", stdError);
+            String stdOut = join(driver, watch);
+            String stdError = join(stdErrorPump, watch);
+            watch.done();
+
+            ExecutionResult result = stdOut != null && stdError != null
+                    ? new ExecutionResult(join(watch.getExitCode()), stdOut, stdError)
+                    : outputLeftOpen(stdOut != null ? stdOut.getBytes(StandardCharsets.UTF_8) : new byte[0],
+                            timeoutInSeconds);
+            result.put(ExecutionResult.MOVE_LATENCIES, moveLatencies);
+            result.put(ExecutionResult.JVM_PROFILE, getJvmProfile().getName());
+            if (classLog != null) {
+                result.put(ExecutionResult.LOADED_CLASSES, readClassLog(minesweeperHome, classLog));
+            }
+            TestSelection.record(result.getLoadedClasses());
 
             return result;
         } catch (Throwable e) {
-            Map<String, Object> result = new HashMap<String, Object>();
-            result.put("exitCode", -123);
-            result.put("stdOut", "");
-            // Print stack trace to string
-            StringWriter sw = new StringWriter();
-            e.printStackTrace(new PrintWriter(sw));
-            result.put("stdError", sw.toString());
+            ExecutionResult result = failed(e);
+            result.put(ExecutionResult.MOVE_LATENCIES, moveLatencies);
+            TestSelection.record(null);
 
             return result;
         }
+    }
+
+    /**
+     * Start Minesweeper in a new process, or in a JVM of the pool.
+     * 
+     * @param minesweeperHome
+     * @param commandLineInputs
+     * @param classLog         where the new process lists the classes it loads,
+     *                         can be null
+     * @return
+     * @throws IOException
+     */
+    private static Process start(File minesweeperHome, List<File> commandLineInputs, File classLog)
+            throws IOException {
+        if (POOLED_EXECUTION.equals(getExecutionMode())) {
+            // The JVM is already running, we only need to tell it to start
+            return MinesweeperJvmPool.getInstance().acquire(minesweeperHome, getProgramArguments(commandLineInputs));
+        }
+
+        List<String> _args = new ArrayList<String>();
+        _args.add(getJava());
+        _args.addAll(getJvmProfile().getJvmOptions());
+        _args.add(getEncoding());
+        // Ensure that environmental variables are set as well
+        _args.add("-D" + MINESWEEPER_HOME + "=" + minesweeperHome.getPath());
+        if (classLog != null) {
+            _args.add("-Xlog:class+load=info:file=" + classLog.getPath() + ":none");
+        }
+
+        // Map the classes of Minesweeper from a CDS archive, if enabled
+        MinesweeperCds.Archive archive = MinesweeperCds.getArchive(minesweeperHome);
+        if (archive != null) {
+            _args.addAll(archive.getJvmOptions());
+        }
+
+        // In order to correctly invoke Minesweeper we need to set its class path
+        _args.add("-cp");
+        _args.add(archive != null ? archive.getClassPath(minesweeperHome) : minesweeperHome.getPath());
+        _args.add(getMinesweeperClassName());
+        _args.addAll(getProgramArguments(commandLineInputs));
+
+        // Start the process
+        ProcessBuilder pb = new ProcessBuilder(_args);
+        return pb.start();
+    }
+
+    /**
+     * Return a new file where a forked Minesweeper can list the classes it loads,
+     * if TestSelection needs them. JVMs of the pool are already running, so they
+     * cannot.
+     * 
+     * @return the file, or null if the classes are not needed
+     * @throws IOException
+     */
+    private static File newClassLog() throws IOException {
+        if (!TestSelection.isActive() || POOLED_EXECUTION.equals(getExecutionMode())) {
+            return null;
+        }
+        File classLog = File.createTempFile("minesweeper-classes", ".log");
+        // In case the execution fails before its log is read
+        classLog.deleteOnExit();
+        return classLog;
+    }
+
+    /**
+     * Read the classes listed by -Xlog:class+load and delete the list.
+     * 
+     * @param minesweeperHome
+     * @param classLog
+     * @return the names of the classes of MINESWEEPER_HOME in the list, in the
+     *         order they were loaded, or null if the list cannot be read
+     */
+    static List<String> readClassLog(File minesweeperHome, File classLog) {
+        List<String> loadedClasses = new ArrayList<String>();
+        try {
+            // Each line is "<class name> source: <where it comes from>"
+            for (String line : Files.readAllLines(classLog.toPath(), StandardCharsets.UTF_8)) {
+                int end = line.indexOf(" source: ");
+                if (end < 0 || line.startsWith("jrt:/", end + " source: ".length())) {
+                    continue;
+                }
+                String className = line.substring(0, end);
+                // Hidden classes have a / in their name. Classes of Minesweeper may come
+                // from a CDS archive, so check whether MINESWEEPER_HOME has them
+                if (className.indexOf('/') < 0
+                        && new File(minesweeperHome, className.replace('.', '/') + ".class").isFile()) {
+                    loadedClasses.add(className);
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        } finally {
+            classLog.delete();
+        }
+        return loadedClasses;
+    }
+
+    /**
+     * Pass the lines of the stdOutput of a completed execution to the given
+     * observer until it returns false.
+     * 
+     * @param result
+     * @param stdOutObserver can be null
+     * @return the given result
+     */
+    private static ExecutionResult observe(ExecutionResult result, Predicate<String> stdOutObserver) {
+        if (stdOutObserver != null) {
+            // Same lines that readBytes passes to the observer
+            Iterator<String> lines = result.getLines().iterator();
+            boolean observing = true;
+            while (observing && lines.hasNext()) {
+                observing = stdOutObserver.test(lines.next());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The result of an execution that could not run
+     * 
+     * @param e what prevented the execution
+     * @return exit code -123 and the stack trace of e as stdError
+     */
+    static ExecutionResult failed(Throwable e) {
+        // Print stack trace to string
+        StringWriter sw = new StringWriter();
+        e.printStackTrace(new PrintWriter(sw));
+        return new ExecutionResult(FAILED_EXIT_CODE, "", sw.toString());
+    }
+
+    /**
+     * Wait for the given pump and rethrow what made it fail
+     * 
+     * @param pump
+     * @return
+     * @throws Exception
+     */
+    /**
+     * Wait for the given pump to read its stream to the end, but not longer than
+     * the deadline of the process, and its grace period, allow.
+     * 
+     * @return what the pump read, or null if the stream is still open, e.g.,
+     *         because a process that Minesweeper started holds it
+     */
+    private static <T> T join(Future<T> pump, ProcessReaper.Watch watch) throws Exception {
+        try {
+            long remaining;
+            while (!pump.isDone() && (remaining = watch.getRemainingNanos()) > 0) {
+                try {
+                    return pump.get(remaining, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // The process might have ended in the meantime, which shortens the wait
+                }
+            }
+            if (!pump.isDone()) {
+                pump.cancel(true);
+                return null;
+            }
+            return pump.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
 
+    // The result of a Minesweeper whose output stayed open after its deadline
+    private static ExecutionResult outputLeftOpen(byte[] stdOut, int timeoutInSeconds) {
+        return new ExecutionResult(InProcessMinesweeper.TIMEOUT_EXIT_CODE, stdOut, "The output of "
+                + getMinesweeperClassName() + " was still open " + timeoutInSeconds + " s after it started");
+    }
+
+    private static <T> T join(Future<T> pump) throws Exception {
+        try {
+            return pump.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Pumps only wait for I/O, so use virtual threads if this JVM has them (JDK
+     * 21+), or a pool of daemon threads otherwise.
+     * 
+     * @return
+     */
+    private static ExecutorService newPumpExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            final AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "minesweeper-pump-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Return the program arguments that correspond to the given files. Null
+     * simulates a missing file, so it is not passed at all.
+     * 
+     * @param commandLineInputs
+     * @return
+     */
+    static List<String> getProgramArguments(List<File> commandLineInputs) {
+        List<String> programArguments = new ArrayList<String>();
+        if (commandLineInputs != null) {
+            for (File f : commandLineInputs) {
+                if (f != null) {
+                    programArguments.add(f.getAbsolutePath());
+                }
+            }
+        }
+        return programArguments;
+    }
+
+    /**
+     * Read the given stream until its end, line by line, and terminate each line
+     * with the line separator of this platform.
+     * 
+     * @param stream
+     * @param charset
+     * @return
+     * @throws IOException
+     */
+    static String readLines(InputStream stream, Charset charset) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, charset));
+        StringBuilder builder = new StringBuilder();
+        String line = null;
+        while ((line = reader.readLine()) != null) {
+            builder.append(line);
+            builder.append(System.getProperty("line.separator"));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Read the given stream until its end and pass each of its lines, decoded as
+     * UTF-8, to the given observer until it returns false.
+     * 
+     * @param stream
+     * @param lineObserver can be null
+     * @return the bytes of the stream, as they were read
+     * @throws IOException
+     */
+    static byte[] readBytes(InputStream stream, Predicate<String> lineObserver) throws IOException {
+        if (lineObserver == null) {
+            return stream.readAllBytes();
+        }
+
+        // The reader splits the lines, while the bytes it reads are kept as they are
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InputStream tee = new FilterInputStream(stream) {
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    bytes.write(b);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    bytes.write(buffer, offset, read);
+                }
+                return read;
+            }
+        };
+        BufferedReader reader = new BufferedReader(new InputStreamReader(tee, StandardCharsets.UTF_8));
+        String line = null;
+        while ((line = reader.readLine()) != null) {
+            if (lineObserver != null && !lineObserver.test(line)) {
+                lineObserver = null;
+            }
+        }
+        return bytes.toByteArray();
     }
 
 }
\ No newline at end of file
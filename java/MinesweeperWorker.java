@@ -0,0 +1,147 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point of the long-lived JVMs used by MinesweeperWorkerPool. </br>
+ *
+ * A worker reads job frames from its standard input, runs each job with
+ * InProcessMinesweeper (i.e., in a new class loader) and writes a result frame
+ * to its standard output. Frames are length-prefixed:
+ *
+ * <pre>
+ * job:    JOB_FRAME, timeout, (length, bytes) of home, #arguments, (length, bytes)*, #inputs, (length, bytes)*
+ * result: RESULT_FRAME, exitCode, (length, bytes) of stdOut, (length, bytes) of stdError,
+ *         has loaded classes, [#loaded classes, (length, bytes)*], retiring
+ * </pre>
+ *
+ * The worker recycles itself (i.e., it answers with retiring set and exits)
+ * after MAX_JOBS jobs, after a job times out, or when its heap grew more than
+ * MAX_HEAP_GROWTH megabytes since the first job, to contain leaks and threads
+ * left behind by student code.
+ *
+ */
+public class MinesweeperWorker {
+
+    public final static String MAX_JOBS = "minesweeper.worker.jobs";
+    public final static String MAX_HEAP_GROWTH = "minesweeper.worker.heap.growth";
+
+    public final static int DEFAULT_MAX_JOBS = 500;
+    public final static int DEFAULT_MAX_HEAP_GROWTH = 64;
+
+    final static int JOB_FRAME = 0x4A4F4221;
+    final static int RESULT_FRAME = 0x52455321;
+
+    public static void main(String[] args) throws IOException {
+        // Take the standard streams before Minesweeper gets the chance to use them
+        DataInputStream jobs = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        DataOutputStream results = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+
+        int maxJobs = Integer.getInteger(MAX_JOBS, DEFAULT_MAX_JOBS);
+        long maxHeapGrowth = Integer.getInteger(MAX_HEAP_GROWTH, DEFAULT_MAX_HEAP_GROWTH) * 1024L * 1024L;
+        long baselineHeap = -1;
+
+        for (int job = 1;; job++) {
+            int timeoutInSeconds;
+            File minesweeperHome;
+            List<File> commandLineInputs = new ArrayList<File>();
+            List<String> inputSequence = new ArrayList<String>();
+            try {
+                if (jobs.readInt() != JOB_FRAME) {
+                    throw new IOException("Not a job frame");
+                }
+                timeoutInSeconds = jobs.readInt();
+                minesweeperHome = new File(readString(jobs));
+                for (String argument : readStrings(jobs)) {
+                    commandLineInputs.add(new File(argument));
+                }
+                inputSequence.addAll(readStrings(jobs));
+            } catch (EOFException e) {
+                // The pool is gone
+                System.exit(0);
+                return;
+            }
+
+            ExecutionResult result;
+            try {
+                result = InProcessMinesweeper.execute(minesweeperHome, commandLineInputs, inputSequence,
+                        timeoutInSeconds);
+            } catch (Throwable e) {
+                // Same as MinesweeperTestUtils.execute
+                result = MinesweeperTestUtils.failed(e);
+            }
+
+            long usedHeap = getUsedHeap(false);
+            if (baselineHeap < 0) {
+                baselineHeap = usedHeap;
+            }
+            boolean retiring = job >= maxJobs
+                    // A thread of Minesweeper might be still around
+                    || result.getExitCode() == InProcessMinesweeper.TIMEOUT_EXIT_CODE
+                    // Garbage is not a leak, so collect it before giving up
+                    || (usedHeap - baselineHeap > maxHeapGrowth && getUsedHeap(true) - baselineHeap > maxHeapGrowth);
+
+            results.writeInt(RESULT_FRAME);
+            results.writeInt(result.getExitCode());
+            writeString(results, result.getStdOut());
+            writeString(results, result.getStdError());
+            results.writeBoolean(result.getLoadedClasses() != null);
+            if (result.getLoadedClasses() != null) {
+                writeStrings(results, result.getLoadedClasses());
+            }
+            results.writeBoolean(retiring);
+            results.flush();
+
+            if (retiring) {
+                System.exit(0);
+            }
+        }
+    }
+
+    private static long getUsedHeap(boolean collectGarbage) {
+        if (collectGarbage) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> values = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+}
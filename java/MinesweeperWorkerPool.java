@@ -0,0 +1,144 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A small set of long-lived MinesweeperWorker JVMs that run executions one
+ * after the other. Compared to forking, the JVM starts and loads the classes of
+ * Minesweeper only once and its JIT stays warm across executions.
+ *
+ */
+public class MinesweeperWorkerPool {
+
+    private static MinesweeperWorkerPool instance;
+
+    private final Semaphore permits;
+
+    private final Queue<Worker> idleWorkers = new ConcurrentLinkedQueue<Worker>();
+
+    private final List<String> command;
+
+    static final class Worker {
+
+        final Process process;
+        final DataOutputStream jobs;
+        final DataInputStream results;
+
+        Worker(Process process) {
+            this.process = process;
+            this.jobs = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.results = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+    }
+
+    private MinesweeperWorkerPool(int size) {
+        this.permits = new Semaphore(size);
+        this.command = getCommand();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+    }
+
+    public static synchronized MinesweeperWorkerPool getInstance() {
+        if (instance == null) {
+            instance = new MinesweeperWorkerPool(MinesweeperTestUtils.getWorkers());
+        }
+        return instance;
+    }
+
+    /**
+     * Run Minesweeper on one of the workers with the given MINESWEEPER_HOME,
+     * program arguments and inputSequence.
+     *
+     * @param minesweeperHome
+     * @param programArguments
+     * @param inputSequence
+     * @param timeoutInSeconds
+     * @return the exitCode and a copy of the stdOutput and stdError generated by
+     *         the program
+     * @throws Exception
+     */
+    public ExecutionResult execute(File minesweeperHome, List<String> programArguments,
+            List<String> inputSequence, int timeoutInSeconds) throws Exception {
+        permits.acquire();
+        Worker worker = null;
+        boolean reusable = false;
+        try {
+            worker = idleWorkers.poll();
+            if (worker == null || !worker.process.isAlive()) {
+                worker = new Worker(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+            }
+
+            worker.jobs.writeInt(MinesweeperWorker.JOB_FRAME);
+            worker.jobs.writeInt(timeoutInSeconds);
+            MinesweeperWorker.writeString(worker.jobs, minesweeperHome.getPath());
+            MinesweeperWorker.writeStrings(worker.jobs, programArguments);
+            MinesweeperWorker.writeStrings(worker.jobs, inputSequence);
+            worker.jobs.flush();
+
+            if (worker.results.readInt() != MinesweeperWorker.RESULT_FRAME) {
+                // Something else than the worker wrote on its stdout
+                throw new IOException("Worker sent a corrupted result frame");
+            }
+            ExecutionResult result = new ExecutionResult(worker.results.readInt(),
+                    MinesweeperWorker.readString(worker.results), MinesweeperWorker.readString(worker.results));
+            if (worker.results.readBoolean()) {
+                result.put(ExecutionResult.LOADED_CLASSES, MinesweeperWorker.readStrings(worker.results));
+            }
+            reusable = !worker.results.readBoolean();
+
+            return result;
+        } finally {
+            if (worker != null) {
+                if (reusable) {
+                    idleWorkers.add(worker);
+                } else {
+                    worker.process.destroyForcibly();
+                }
+            }
+            permits.release();
+        }
+    }
+
+    private void shutdown() {
+        Worker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.process.destroyForcibly();
+        }
+    }
+
+    private static List<String> getCommand() {
+        List<String> _args = new ArrayList<String>();
+        _args.add(MinesweeperTestUtils.getJava());
+        _args.add(MinesweeperTestUtils.getEncoding());
+        _args.add("-D" + MinesweeperTestUtils.MINESWEEPER_HOME + "=" + MinesweeperTestUtils.getMinesweeper());
+        _args.add("-D" + MinesweeperTestUtils.MINESWEEPER_NAME + "=" + MinesweeperTestUtils.getMinesweeperClassName());
+        for (String property : new String[] { MinesweeperWorker.MAX_JOBS, MinesweeperWorker.MAX_HEAP_GROWTH }) {
+            if (System.getProperty(property) != null) {
+                _args.add("-D" + property + "=" + System.getProperty(property));
+            }
+        }
+        if (MinesweeperTestUtils.getJavaVersion() >= 12) {
+            // Otherwise, JVMs after 17 do not let the worker trap System.exit. Java 11
+            // would read "allow" as the class name of a SecurityManager
+            _args.add("-Djava.security.manager=allow");
+        }
+
+        // The worker needs the same classes as the tests, but not Minesweeper: that's
+        // loaded for each job
+        List<String> classPath = new ArrayList<String>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classPath.add(new File(entry).getAbsolutePath());
+        }
+        _args.add("-cp");
+        _args.add(String.join(File.pathSeparator, classPath));
+        _args.add(MinesweeperWorker.class.getName());
+        return _args;
+    }
+}
@@ -0,0 +1,70 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Entry point of the JVMs kept warm by MinesweeperJvmPool. </br>
+ *
+ * The launcher loads (but does not initialize) the Minesweeper class and then
+ * waits for the "go" signal on its standard input: a line with the
+ * MINESWEEPER_HOME to use, a line with the number of program arguments and one
+ * line for each argument. After that, it
+ * invokes Minesweeper's main with those arguments and leaves the rest of the
+ * standard input to Minesweeper. </br>
+ *
+ * This class runs in the child JVM, so it must not depend on JUnit or any
+ * other testing class.
+ *
+ */
+public class PooledMinesweeperLauncher {
+
+    public static void main(String[] args) throws Throwable {
+        // Loading without initializing does not run any code of Minesweeper before
+        // the go signal (e.g., static initializers reading config.ini)
+        Class<?> minesweeperClass = Class.forName(args[0], false, PooledMinesweeperLauncher.class.getClassLoader());
+        Method main = minesweeperClass.getMethod("main", String[].class);
+
+        String minesweeperHome = readLine(System.in);
+        if (minesweeperHome == null) {
+            // The pool has been shut down before using this JVM
+            return;
+        }
+        // Tests running in parallel use their own copy of MINESWEEPER_HOME
+        System.setProperty("minesweeper.home", minesweeperHome);
+
+        String[] programArguments = new String[Integer.parseInt(readLine(System.in))];
+        for (int i = 0; i < programArguments.length; i++) {
+            programArguments[i] = readLine(System.in);
+        }
+
+        try {
+            main.invoke(null, (Object) programArguments);
+        } catch (InvocationTargetException e) {
+            // Let the JVM report it as if Minesweeper was started directly
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Read a single line byte by byte, so nothing that is meant for Minesweeper
+     * gets buffered here.
+     *
+     * @param in
+     * @return the line or null if the stream ended before it
+     * @throws IOException
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                return null;
+            }
+            line.write(b);
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces the deadlines of the processes started by the tests. A single timer
+ * thread serves all the executions: nothing waits for a process, the exit code
+ * is delivered by Process.onExit() as soon as the process ends. </br>
+ *
+ * When the deadline of a process expires, the process and all its descendants
+ * are asked to terminate (like destroy() does), and are killed if they are still
+ * around GRACE_PERIOD_IN_SECONDS later. The deadline stays armed after the
+ * process ends, until the caller read its output to the end (see
+ * Watch.done()): a process that Minesweeper started might still hold the
+ * output open. </br>
+ *
+ * Once a process ends, its children are not its descendants anymore, so the
+ * reaper samples the descendants of each process while it runs, and terminates
+ * those that are still around when it ends. A descendant that starts and
+ * outlives its parent between two samples is not found, but the deadline still
+ * bounds how long the caller waits for the output.
+ *
+ */
+public class ProcessReaper {
+
+    public final static int GRACE_PERIOD_IN_SECONDS = 5;
+
+    // How often the descendants of a running process are listed
+    public final static int SAMPLING_INTERVAL_IN_MILLIS = 50;
+
+    private final static ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "minesweeper-reaper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * The deadline of a process, and the exit code it ended with
+     */
+    public static final class Watch {
+
+        private final Process process;
+        private final long deadline;
+        private final Set<ProcessHandle> descendants = ConcurrentHashMap.newKeySet();
+        private final CompletableFuture<Integer> exitCode;
+        private final ScheduledFuture<?> sampler;
+        private final ScheduledFuture<?> timeout;
+
+        private Watch(Process process, int timeoutInSeconds) {
+            this.process = process;
+            this.deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutInSeconds);
+            this.sampler = timer.scheduleWithFixedDelay(this::sample, 0, SAMPLING_INTERVAL_IN_MILLIS,
+                    TimeUnit.MILLISECONDS);
+            this.timeout = timer.schedule(this::expire, timeoutInSeconds, TimeUnit.SECONDS);
+            this.exitCode = process.onExit().thenApply(p -> {
+                sampler.cancel(false);
+                // Whatever it left behind might keep its output open
+                descendants.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroy);
+                return p.exitValue();
+            });
+        }
+
+        private void sample() {
+            process.descendants().forEach(descendants::add);
+        }
+
+        private void expire() {
+            sampler.cancel(false);
+            List<ProcessHandle> tree = new ArrayList<ProcessHandle>();
+            tree.add(process.toHandle());
+            process.descendants().forEach(descendants::add);
+            tree.addAll(descendants);
+            tree.forEach(ProcessHandle::destroy);
+            timer.schedule(() -> tree.forEach(ProcessHandle::destroyForcibly), GRACE_PERIOD_IN_SECONDS,
+                    TimeUnit.SECONDS);
+        }
+
+        /**
+         * @return the exit code of the process, available as soon as it ends
+         */
+        public CompletableFuture<Integer> getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         * @return how many nanoseconds the caller should still wait for the output:
+         *         until the deadline and, once it is over, until the end of the grace
+         *         period if the process is still running. Zero or less when the
+         *         caller should give up
+         */
+        public long getRemainingNanos() {
+            long now = System.nanoTime();
+            if (now < deadline) {
+                return deadline - now;
+            }
+            return exitCode.isDone() ? 0 : deadline + TimeUnit.SECONDS.toNanos(GRACE_PERIOD_IN_SECONDS) - now;
+        }
+
+        /**
+         * Disarm the deadline, once the output of the process has been read to the
+         * end.
+         */
+        public void done() {
+            timeout.cancel(false);
+        }
+    }
+
+    /**
+     * Start enforcing the deadline of the given process.
+     *
+     * @param process
+     * @param timeoutInSeconds
+     * @return
+     */
+    public static Watch watch(Process process, int timeoutInSeconds) {
+        return new Watch(process, timeoutInSeconds);
+    }
+
+    /**
+     * Kill the given process and its descendants right away.
+     *
+     * @param process
+     */
+    public static void destroyTreeForcibly(Process process) {
+        process.toHandle().destroyForcibly();
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+    }
+}
@@ -0,0 +1,617 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * The scenarios of test_scenarios compiled into a single binary index, so that
+ * ScenarioTest does not parse every file at each run. </br>
+ *
+ * For each scenario, the index stores the name, size, modification time and
+ * SHA-256 of its files, and the board, inputs and expected output exactly as
+ * ScenarioTest reads them. A scenario is parsed again only if its files
+ * changed. A different modification time alone does not count as a change
+ * (e.g., after a checkout) if the content hash is the same. The index is
+ * rewritten whenever something changed, and it is ignored when it cannot be
+ * read, so deleting it is always safe. </br>
+ *
+ * The index is memory-mapped and load() returns only an Entry for each
+ * scenario, i.e., its name and where it is in the index. Board, inputs and
+ * expected output are decoded by Entry.decode() when the test of that scenario
+ * runs, so the heap does not grow with the size of the corpus. </br>
+ *
+ * Scenarios without an -expectedOutput.txt file (e.g., generated with
+ * --expected=none) expect what MinesweeperOracle prints for their board and
+ * inputs. The index stores that output too, and it is rebuilt when the version
+ * of the oracle changes. </br>
+ *
+ * Layout of the index (strings are int length + UTF-8 bytes):
+ *
+ * <pre>
+ * MAGIC, VERSION, oracle VERSION, default charset, #scenarios, (offset of scenario)*
+ * scenario: folder, folder mtime, #files, (name, size, mtime, sha256)*,
+ *           name, board, #inputs, input*, #expected, expected*
+ * </pre>
+ *
+ */
+public class ScenarioCorpus {
+
+    public final static String INDEX_FILE = ".scenarios.idx";
+
+    final static int MAGIC = 0x50534958;
+    final static int VERSION = 2;
+
+    /**
+     * What identifies the content of a file of a scenario
+     */
+    static final class FileStamp {
+
+        final String name;
+        final long size;
+        final long lastModified;
+        final byte[] sha256;
+
+        FileStamp(String name, long size, long lastModified, byte[] sha256) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+        }
+    }
+
+    static final class Scenario {
+
+        final String folder;
+        final long lastModified;
+        final List<FileStamp> files;
+
+        final String name;
+        final String board;
+        final List<String> inputs;
+        final List<String> expectedOutput;
+
+        Scenario(String folder, long lastModified, List<FileStamp> files, String name, String board,
+                List<String> inputs, List<String> expectedOutput) {
+            this.folder = folder;
+            this.lastModified = lastModified;
+            this.files = files;
+            this.name = name;
+            this.board = board;
+            this.inputs = inputs;
+            this.expectedOutput = expectedOutput;
+        }
+    }
+
+    // Returned by refresh when a scenario must be parsed again
+    private static final Scenario CHANGED = new Scenario(null, 0, null, null, null, null, null);
+
+    /**
+     * A scenario in the index: enough to name its test, and to decode it later
+     */
+    public static final class Entry {
+
+        private final ByteBuffer index;
+        private final int offset;
+
+        final String name;
+
+        Entry(ByteBuffer index, int offset, String name) {
+            this.index = index;
+            this.offset = offset;
+            this.name = name;
+        }
+
+        /**
+         * Decode this scenario from the index. Nothing is kept, so each call decodes
+         * it again.
+         *
+         * @return
+         */
+        public Scenario decode() {
+            return readScenario(at(index, offset));
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * The stamps of a scenario in the index, which is all it takes to check
+     * whether the scenario is still up to date
+     */
+    private static final class Record {
+
+        final int position;
+        final int offset;
+        final int end;
+
+        final String folder;
+        final long lastModified;
+        final List<FileStamp> files;
+        final String name;
+
+        Record(int position, int offset, int end, String folder, long lastModified, List<FileStamp> files,
+                String name) {
+            this.position = position;
+            this.offset = offset;
+            this.end = end;
+            this.folder = folder;
+            this.lastModified = lastModified;
+            this.files = files;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Return the parameters of ScenarioTest for the scenarios in the given folder,
+     * in the same order as listFiles returns them: the name of the scenario and
+     * its Entry.
+     *
+     * @param scenarioDirectory
+     * @return
+     * @throws IOException
+     */
+    public static List<Object[]> load(File scenarioDirectory) throws IOException {
+        File indexFile = new File(scenarioDirectory, INDEX_FILE);
+        ByteBuffer index = mapIndex(indexFile);
+        Map<String, Record> indexed = readRecords(index);
+
+        // Either a Record still valid in the index or the encoded scenario to store in
+        // it, which takes much less memory than the Scenario itself
+        boolean changed = false;
+        List<Object> scenarios = new ArrayList<Object>();
+        for (File scenarioFolder : scenarioDirectory.listFiles()) {
+            if (!scenarioFolder.isDirectory())
+                continue;
+
+            Record cached = indexed.remove(scenarioFolder.getName());
+            Scenario scenario = null;
+            if (cached != null) {
+                scenario = refresh(index, cached, scenarioFolder);
+                if (scenario == null) {
+                    // Parameters come in the order of the index
+                    changed = changed || cached.position != scenarios.size();
+                    scenarios.add(cached);
+                    continue;
+                }
+            }
+            if (scenario == null || scenario == CHANGED) {
+                scenario = parse(scenarioFolder);
+            }
+            scenarios.add(encode(scenario));
+            changed = true;
+        }
+
+        // Scenarios that are gone count as a change too
+        if (changed || !indexed.isEmpty()) {
+            index = writeIndex(indexFile, index, scenarios);
+        }
+
+        return readEntries(index);
+    }
+
+    /**
+     * Check the given scenario against the files in its folder.
+     *
+     * @param index
+     * @param cached
+     * @param scenarioFolder
+     * @return null if nothing changed, the scenario with the new modification
+     *         times if only those changed, or CHANGED if the scenario must be
+     *         parsed again
+     * @throws IOException
+     */
+    private static Scenario refresh(ByteBuffer index, Record cached, File scenarioFolder) throws IOException {
+        long folderLastModified = scenarioFolder.lastModified();
+
+        // Files cannot be added, removed or renamed without touching the folder
+        List<String> names = new ArrayList<String>();
+        if (folderLastModified == cached.lastModified) {
+            for (FileStamp stamp : cached.files) {
+                names.add(stamp.name);
+            }
+        } else {
+            for (File scenarioConfigFile : scenarioFolder.listFiles()) {
+                names.add(scenarioConfigFile.getName());
+            }
+            if (names.size() != cached.files.size()) {
+                return CHANGED;
+            }
+        }
+
+        boolean touched = folderLastModified != cached.lastModified;
+        List<FileStamp> files = new ArrayList<FileStamp>();
+        for (int i = 0; i < names.size(); i++) {
+            FileStamp stamp = cached.files.get(i);
+            if (!stamp.name.equals(names.get(i))) {
+                return CHANGED;
+            }
+
+            Path file = new File(scenarioFolder, stamp.name).toPath();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                return CHANGED;
+            }
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            if (attributes.size() != stamp.size) {
+                return CHANGED;
+            }
+            if (lastModified != stamp.lastModified) {
+                if (!Arrays.equals(sha256(Files.readAllBytes(file)), stamp.sha256)) {
+                    return CHANGED;
+                }
+                touched = true;
+            }
+            files.add(new FileStamp(stamp.name, stamp.size, lastModified, stamp.sha256));
+        }
+
+        if (!touched) {
+            return null;
+        }
+        Scenario scenario = readScenario(at(index, cached.offset));
+        return new Scenario(scenario.folder, folderLastModified, files, scenario.name, scenario.board,
+                scenario.inputs, scenario.expectedOutput);
+    }
+
+    /**
+     * Read the scenario in the given folder like ScenarioTest always did: the
+     * name comes from the last file of the folder and the files are read with a
+     * Scanner.
+     *
+     * @param scenarioFolder
+     * @return
+     * @throws IOException
+     */
+    static Scenario parse(File scenarioFolder) throws IOException {
+        File[] scenarioConfigFiles = scenarioFolder.listFiles();
+
+        String testName = "";
+        List<String> inputs = new ArrayList<>();
+        List<String> expectedOutput = new ArrayList<>();
+        boolean hasExpectedOutput = false;
+        StringBuilder configBuilder = new StringBuilder();
+        List<FileStamp> files = new ArrayList<FileStamp>();
+        for (File scenarioConfigFile : scenarioConfigFiles) {
+            testName = scenarioConfigFile.getName();
+
+            byte[] content = Files.readAllBytes(scenarioConfigFile.toPath());
+            files.add(new FileStamp(testName, content.length, scenarioConfigFile.lastModified(), sha256(content)));
+
+            if (testName.endsWith("-input.txt")) {
+
+                // ******************************************************
+                // process scenario input file. Read the user inputs
+                // ******************************************************
+
+                try (Scanner inputScanner = newScanner(content)) {
+                    while (inputScanner.hasNext())
+                        inputs.add(inputScanner.nextLine());
+                }
+
+            } else if (testName.endsWith("-board.txt")) {
+
+                // ******************************************************
+                // process scenario input file
+                // ******************************************************
+
+                try (Scanner boardScanner = newScanner(content)) {
+
+                    // read board configuration inputs for the game
+                    while (boardScanner.hasNext())
+                        configBuilder.append(boardScanner.nextLine()).append('\n');
+                }
+
+            } else if (testName.endsWith("-expectedOutput.txt")) {
+
+                // ******************************************************
+                // process scenario expected output file
+                // ******************************************************
+
+                hasExpectedOutput = true;
+                try (Scanner expectedOutputScanner = newScanner(content)) {
+                    while (expectedOutputScanner.hasNext())
+                        expectedOutput.add(expectedOutputScanner.nextLine());
+                }
+            }
+        }
+
+        if (!hasExpectedOutput) {
+            // Read as if the output of the oracle was the expected output file
+            byte[] content = MinesweeperOracle.play(configBuilder.toString(), inputs)
+                    .getBytes(Charset.defaultCharset());
+            try (Scanner expectedOutputScanner = newScanner(content)) {
+                while (expectedOutputScanner.hasNext())
+                    expectedOutput.add(expectedOutputScanner.nextLine());
+            }
+        }
+
+        return new Scenario(scenarioFolder.getName(), scenarioFolder.lastModified(), files,
+                testName.substring(0, testName.indexOf('-')), configBuilder.toString(), inputs, expectedOutput);
+    }
+
+    /**
+     * Same as new Scanner(file) on a file with the given content, which decodes
+     * differently than new Scanner(InputStream) if the content is not valid in
+     * the default charset
+     */
+    private static Scanner newScanner(byte[] content) {
+        return new Scanner(Channels.newChannel(new ByteArrayInputStream(content)));
+    }
+
+    /**
+     * Map the given index in memory.
+     *
+     * @param indexFile
+     * @return the index, or null if there is no valid index
+     */
+    private static ByteBuffer mapIndex(File indexFile) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after closing the channel
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (index.getInt() != MAGIC || index.getInt() != VERSION
+                    || index.getInt() != MinesweeperOracle.VERSION
+                    // Scanner decodes the files with the default charset
+                    || !readString(index).equals(Charset.defaultCharset().name())) {
+                return null;
+            }
+            return index;
+        } catch (IOException | RuntimeException e) {
+            // A broken index is rebuilt
+            return null;
+        }
+    }
+
+    /**
+     * Return the name and the Entry of each scenario in the given index, in the
+     * order they are stored.
+     *
+     * @param index can be null
+     * @return
+     */
+    private static List<Object[]> readEntries(ByteBuffer index) {
+        List<Object[]> entries = new ArrayList<Object[]>();
+        if (index == null) {
+            return entries;
+        }
+        for (int offset : readTable(index)) {
+            ByteBuffer in = at(index, offset);
+            readString(in);
+            in.getLong();
+            readStamps(in);
+            String name = readString(in);
+            entries.add(new Object[] { name, new Entry(index, offset, name) });
+        }
+        return entries;
+    }
+
+    /**
+     * Read the stamps of all the scenarios in the given index.
+     *
+     * @param index can be null
+     * @return the records, by folder
+     */
+    private static Map<String, Record> readRecords(ByteBuffer index) {
+        Map<String, Record> records = new HashMap<String, Record>();
+        if (index == null) {
+            return records;
+        }
+        try {
+            int[] offsets = readTable(index);
+            for (int i = 0; i < offsets.length; i++) {
+                ByteBuffer in = at(index, offsets[i]);
+                String folder = readString(in);
+                long lastModified = in.getLong();
+                List<FileStamp> files = readStamps(in);
+                int end = i + 1 < offsets.length ? offsets[i + 1] : index.limit();
+                records.put(folder, new Record(i, offsets[i], end, folder, lastModified, files, readString(in)));
+            }
+            return records;
+        } catch (RuntimeException e) {
+            // A broken index is rebuilt
+            return new HashMap<String, Record>();
+        }
+    }
+
+    private static int[] readTable(ByteBuffer index) {
+        ByteBuffer in = at(index, 0);
+        in.getInt();
+        in.getInt();
+        in.getInt();
+        readString(in);
+        int[] offsets = new int[in.getInt()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = (int) in.getLong();
+        }
+        return offsets;
+    }
+
+    /**
+     * Write a new index with the given scenarios, copying the records that did not
+     * change from the old index.
+     *
+     * @param indexFile
+     * @param oldIndex
+     * @param scenarios Records of oldIndex or encoded Scenarios
+     * @return the new index, mapped in memory if it could be written to
+     *         indexFile
+     * @throws IOException
+     */
+    private static ByteBuffer writeIndex(File indexFile, ByteBuffer oldIndex, List<Object> scenarios)
+            throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeInt(MAGIC);
+        headerOut.writeInt(VERSION);
+        headerOut.writeInt(MinesweeperOracle.VERSION);
+        writeString(headerOut, Charset.defaultCharset().name());
+        headerOut.writeInt(scenarios.size());
+        long offset = headerOut.size() + (long) scenarios.size() * Long.BYTES;
+        for (Object scenario : scenarios) {
+            headerOut.writeLong(offset);
+            offset += scenario instanceof Record ? ((Record) scenario).end - ((Record) scenario).offset
+                    : ((byte[]) scenario).length;
+        }
+
+        try {
+            // Readers running at the same time see either the old or the new index
+            Path tmp = Files.createTempFile(indexFile.getParentFile().toPath(), INDEX_FILE, ".tmp");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                    writeRecords(out, header, oldIndex, scenarios);
+                }
+                try {
+                    Files.move(tmp, indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            ByteBuffer index = mapIndex(indexFile);
+            if (index != null) {
+                return index;
+            }
+        } catch (IOException e) {
+            // The index is only a cache, e.g., the folder might be read-only
+        }
+
+        // Serve the scenarios from the heap then
+        ByteArrayOutputStream index = new ByteArrayOutputStream((int) offset);
+        writeRecords(index, header, oldIndex, scenarios);
+        return ByteBuffer.wrap(index.toByteArray());
+    }
+
+    private static void writeRecords(OutputStream out, ByteArrayOutputStream header, ByteBuffer oldIndex,
+            List<Object> scenarios) throws IOException {
+        header.writeTo(out);
+        for (Object scenario : scenarios) {
+            if (scenario instanceof Record) {
+                Record record = (Record) scenario;
+                byte[] bytes = new byte[record.end - record.offset];
+                at(oldIndex, record.offset).get(bytes);
+                out.write(bytes);
+            } else {
+                out.write((byte[]) scenario);
+            }
+        }
+    }
+
+    /**
+     * Return an independent view of the given index positioned at the given offset
+     */
+    private static ByteBuffer at(ByteBuffer index, int offset) {
+        ByteBuffer view = index.duplicate();
+        view.position(offset);
+        return view;
+    }
+
+    private static byte[] encode(Scenario scenario) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeScenario(new DataOutputStream(bytes), scenario);
+        return bytes.toByteArray();
+    }
+
+    private static void writeScenario(DataOutputStream out, Scenario scenario) throws IOException {
+        writeString(out, scenario.folder);
+        out.writeLong(scenario.lastModified);
+        out.writeInt(scenario.files.size());
+        for (FileStamp stamp : scenario.files) {
+            writeString(out, stamp.name);
+            out.writeLong(stamp.size);
+            out.writeLong(stamp.lastModified);
+            out.write(stamp.sha256);
+        }
+        writeString(out, scenario.name);
+        writeString(out, scenario.board);
+        writeStrings(out, scenario.inputs);
+        writeStrings(out, scenario.expectedOutput);
+    }
+
+    private static Scenario readScenario(ByteBuffer in) {
+        String folder = readString(in);
+        long lastModified = in.getLong();
+        List<FileStamp> files = readStamps(in);
+        return new Scenario(folder, lastModified, files, readString(in), readString(in), readStrings(in),
+                readStrings(in));
+    }
+
+    private static List<FileStamp> readStamps(ByteBuffer in) {
+        int count = in.getInt();
+        List<FileStamp> files = new ArrayList<FileStamp>(count);
+        for (int i = 0; i < count; i++) {
+            String name = readString(in);
+            long size = in.getLong();
+            long lastModified = in.getLong();
+            byte[] sha256 = new byte[32];
+            in.get(sha256);
+            files.add(new FileStamp(name, size, lastModified, sha256));
+        }
+        return files;
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM must provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer in) {
+        int size = in.getInt();
+        List<String> values = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+}
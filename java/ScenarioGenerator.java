@@ -0,0 +1,313 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Generates random scenarios in the same layout as test_scenarios, i.e., a
+ * folder for each scenario with the -board.txt, -input.txt and
+ * -expectedOutput.txt files. </br>
+ *
+ * Boards have up to 20 rows and 20 columns (the limit checked by BasicTest),
+ * at least two squares, any density of mines but at least one square without a
+ * mine. Inputs are random reveal and flag moves; a few of them are not valid
+ * (e.g., out of the board, or unknown actions). The expected output is what the
+ * Minesweeper in MINESWEEPER_HOME prints for that board and inputs, executed by
+ * MinesweeperTestUtils.execute, so the same execution modes of the tests apply
+ * (use -Dminesweeper.execution=worker for large corpora). Minesweeper should
+ * use the default plugin, i.e., MINESWEEPER_HOME should not contain a
+ * config.ini that selects another one. </br>
+ *
+ * With --expected=oracle the expected output is computed by MinesweeperOracle
+ * instead, which does not need MINESWEEPER_HOME and is much faster. With
+ * --expected=none the -expectedOutput.txt file is not written, and ScenarioTest
+ * computes the expected output with the oracle when it loads the scenario.
+ * </br>
+ *
+ * With --moves=solver the moves are not random but a winning sequence found by
+ * MinesweeperSolver. </br>
+ *
+ * Scenarios are generated in parallel. Each scenario depends only on the seed
+ * and its number, so the same seed gives the same corpus regardless of the
+ * number of threads. </br>
+ *
+ * Usage:
+ *
+ * <pre>
+ * ScenarioGenerator output-folder [--count=N] [--seed=S] [--threads=N] [--max-rows=N] [--max-columns=N] [--max-moves=N]
+ *                   [--expected=reference|oracle|none] [--moves=random|solver]
+ * </pre>
+ *
+ */
+public class ScenarioGenerator {
+
+    public final static int MAX_ROWS = 20;
+    public final static int MAX_COLUMNS = 20;
+
+    public final static int DEFAULT_COUNT = 100;
+    public final static int DEFAULT_MAX_MOVES = 50;
+
+    // How often a move is not valid
+    private final static double INVALID_MOVE_PROBABILITY = 0.05;
+
+    private final static int TIMEOUT_IN_SECONDS = 5;
+
+    /**
+     * Where the expected output comes from
+     */
+    enum Expected {
+        REFERENCE, ORACLE, NONE
+    }
+
+    /**
+     * Where the moves come from
+     */
+    enum Moves {
+        RANDOM, SOLVER
+    }
+
+    final File outputFolder;
+    final int count;
+    final long seed;
+    final int threads;
+    final int maxRows;
+    final int maxColumns;
+    final int maxMoves;
+    final Expected expected;
+    final Moves moves;
+
+    ScenarioGenerator(File outputFolder, int count, long seed, int threads, int maxRows, int maxColumns,
+            int maxMoves, Expected expected, Moves moves) {
+        this.outputFolder = outputFolder;
+        this.count = count;
+        this.seed = seed;
+        this.threads = threads;
+        this.maxRows = maxRows;
+        this.maxColumns = maxColumns;
+        this.maxMoves = maxMoves;
+        this.expected = expected;
+        this.moves = moves;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args[0].startsWith("--")) {
+            System.err.println("Usage: ScenarioGenerator output-folder [--count=N] [--seed=S] [--threads=N]"
+                    + " [--max-rows=N] [--max-columns=N] [--max-moves=N] [--expected=reference|oracle|none]"
+                    + " [--moves=random|solver]");
+            System.exit(1);
+        }
+
+        int count = DEFAULT_COUNT;
+        long seed = System.currentTimeMillis();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxRows = MAX_ROWS;
+        int maxColumns = MAX_COLUMNS;
+        int maxMoves = DEFAULT_MAX_MOVES;
+        Expected expected = Expected.REFERENCE;
+        Moves moves = Moves.RANDOM;
+        for (int i = 1; i < args.length; i++) {
+            String value = args[i].substring(args[i].indexOf('=') + 1);
+            if (args[i].startsWith("--count=")) {
+                count = Integer.parseInt(value);
+            } else if (args[i].startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (args[i].startsWith("--threads=")) {
+                threads = Integer.parseInt(value);
+            } else if (args[i].startsWith("--max-rows=")) {
+                maxRows = Math.min(MAX_ROWS, Integer.parseInt(value));
+            } else if (args[i].startsWith("--max-columns=")) {
+                maxColumns = Math.min(MAX_COLUMNS, Integer.parseInt(value));
+            } else if (args[i].startsWith("--max-moves=")) {
+                maxMoves = Integer.parseInt(value);
+            } else if (args[i].startsWith("--expected=")) {
+                expected = Expected.valueOf(value.toUpperCase());
+            } else if (args[i].startsWith("--moves=")) {
+                moves = Moves.valueOf(value.toUpperCase());
+            } else {
+                System.err.println("Unknown option " + args[i]);
+                System.exit(1);
+            }
+        }
+
+        System.out.println("Generating " + count + " scenarios in " + args[0] + " with seed " + seed);
+        ScenarioGenerator generator = new ScenarioGenerator(new File(args[0]), count, seed, threads, maxRows,
+                maxColumns, maxMoves, expected, moves);
+        long start = System.nanoTime();
+        int failures = generator.generate();
+        System.out.println("Generated " + (count - failures) + " scenarios in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+
+        // Stop pools and workers
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Generate all the scenarios.
+     *
+     * @return the number of scenarios that could not be generated
+     * @throws Exception
+     */
+    int generate() throws Exception {
+        outputFolder.mkdirs();
+        File boardFolder = Files.createTempDirectory("scenario-boards").toFile();
+
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            pool.submit(() -> {
+                try {
+                    if (!generate(index, boardFolder)) {
+                        failures.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    System.err.println("Cannot generate scenario " + index);
+                    e.printStackTrace();
+                    failures.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        boardFolder.delete();
+        return failures.get();
+    }
+
+    private boolean generate(int index, File boardFolder) throws Exception {
+        // Mix the number of the scenario into the seed, so close numbers give unrelated
+        // scenarios
+        Random random = new Random(seed ^ (index * 0x9E3779B97F4A7C15L));
+
+        List<String> board = generateBoard(random, maxRows, maxColumns);
+        List<String> inputs = moves == Moves.SOLVER ? MinesweeperSolver.solve(board).moves
+                : generateInputs(random, board.size(), board.get(0).length(), maxMoves);
+
+        String stdOut = null;
+        if (expected == Expected.ORACLE) {
+            stdOut = MinesweeperOracle.play(String.join("\n", board) + "\n", inputs);
+        } else if (expected == Expected.REFERENCE) {
+            // Minesweeper accepts only .cfg files
+            File boardCfgFile = new File(boardFolder, index + ".cfg");
+            Files.write(boardCfgFile.toPath(), board);
+            ExecutionResult result;
+            try {
+                result = MinesweeperTestUtils.execute(Collections.singletonList(boardCfgFile), inputs,
+                        TIMEOUT_IN_SECONDS);
+            } finally {
+                boardCfgFile.delete();
+            }
+
+            if (result.getExitCode() != 0) {
+                System.err.println("Scenario " + index + " ended with exit code " + result.getExitCode() + ":"
+                        + System.lineSeparator() + result.getStdError());
+                return false;
+            }
+            stdOut = result.getStdOut();
+        }
+
+        String name = String.format("random%0" + String.valueOf(count - 1).length() + "d", index);
+        File scenarioFolder = new File(outputFolder, String.valueOf(index));
+        scenarioFolder.mkdirs();
+        Files.write(new File(scenarioFolder, name + "-board.txt").toPath(), board);
+        Files.write(new File(scenarioFolder, name + "-input.txt").toPath(), inputs);
+        if (stdOut != null) {
+            Files.write(new File(scenarioFolder, name + "-expectedOutput.txt").toPath(),
+                    stdOut.lines().collect(Collectors.toList()), StandardCharsets.UTF_8);
+        }
+        return true;
+    }
+
+    /**
+     * Generate the rows of a random board with at least two squares and at least
+     * one square without a mine.
+     *
+     * @param random
+     * @param maxRows
+     * @param maxColumns
+     * @return
+     */
+    static List<String> generateBoard(Random random, int maxRows, int maxColumns) {
+        int rows;
+        int columns;
+        do {
+            rows = 1 + random.nextInt(maxRows);
+            columns = 1 + random.nextInt(maxColumns);
+        } while (rows * columns < 2);
+
+        double density = random.nextDouble();
+        char[][] squares = new char[rows][columns];
+        int mines = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                boolean mine = random.nextDouble() < density;
+                squares[r][c] = mine ? '*' : '.';
+                mines += mine ? 1 : 0;
+            }
+        }
+        if (mines == rows * columns) {
+            squares[random.nextInt(rows)][random.nextInt(columns)] = '.';
+        }
+
+        List<String> board = new ArrayList<String>();
+        for (char[] row : squares) {
+            board.add(new String(row));
+        }
+        return board;
+    }
+
+    /**
+     * Generate a random sequence of moves for a board of the given size. Inputs
+     * are never blank, because ScenarioTest does not read blank lines at the end
+     * of the input file.
+     *
+     * @param random
+     * @param rows
+     * @param columns
+     * @param maxMoves
+     * @return
+     */
+    static List<String> generateInputs(Random random, int rows, int columns, int maxMoves) {
+        int moves = 1 + random.nextInt(maxMoves);
+        List<String> inputs = new ArrayList<String>();
+        for (int i = 0; i < moves; i++) {
+            int row = 1 + random.nextInt(rows);
+            int column = 1 + random.nextInt(columns);
+            String action = random.nextInt(4) == 0 ? "F" : "R";
+
+            if (random.nextDouble() >= INVALID_MOVE_PROBABILITY) {
+                // Extra spaces are still valid
+                inputs.add(random.nextInt(20) == 0 ? "  " + row + "  " + column + " " + action + " "
+                        : row + " " + column + " " + action);
+                continue;
+            }
+
+            switch (random.nextInt(4)) {
+            case 0:
+                // Out of the board
+                inputs.add(random.nextBoolean() ? "0 " + column + " " + action
+                        : row + " " + (columns + 1) + " " + action);
+                break;
+            case 1:
+                inputs.add(row + " " + column + " X");
+                break;
+            case 2:
+                inputs.add(row + " " + action);
+                break;
+            default:
+                inputs.add("a b " + action);
+                break;
+            }
+        }
+        return inputs;
+    }
+}
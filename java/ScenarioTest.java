@@ -2,14 +2,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Scanner;
-import java.util.function.Consumer;
 
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
@@ -36,16 +30,22 @@ public class ScenarioTest {
     public List<String> inputs;
     public List<String> expectedOutput;
 
-    public ScenarioTest(String testName, String config, List<String> inputs, List<String> expectedOutput) {
+    public ScenarioTest(String testName, ScenarioCorpus.Entry scenarioEntry) {
+        // JUnit creates the test right before running it, so only the scenario that
+        // runs is decoded
+        ScenarioCorpus.Scenario scenario = scenarioEntry.decode();
         this.testName = testName;
-        this.config = config;
-        this.inputs = inputs;
-        this.expectedOutput = expectedOutput;
+        this.config = scenario.board;
+        this.inputs = scenario.inputs;
+        this.expectedOutput = scenario.expectedOutput;
     }
 
     @Rule
     public TemporaryFolder tempFolder = new TemporaryFolder();
 
+    @Rule
+    public MinesweeperSandbox sandbox = new MinesweeperSandbox();
+
     @BeforeClass
     public static void checkPrecondition() {
         /*
@@ -57,147 +57,17 @@ public class ScenarioTest {
     @Parameterized.Parameters(name = "{0}")
     public static Collection<Object[]> data() throws Exception {
 
-        ArrayList<Object[]> scenarioObjects = new ArrayList<>();
         // TODO Move to upper folder in system independent way
-        File scenarioDirectory = new File("../test_scenarios");
-
-        File[] scenarioList = scenarioDirectory.listFiles();
-        for (File scenarioFolder : scenarioList) {
-
-            if (!scenarioFolder.isDirectory())
-                continue;
-
-            File[] scenarioConfigFiles = scenarioFolder.listFiles();
-
-            String testName = "";
-            List<String> inputs = new ArrayList<>();
-            List<String> expectedOutput = new ArrayList<>();
-            StringBuilder configBuilder = new StringBuilder();
-            for (File scenarioConfigFile : scenarioConfigFiles) {
-                testName = scenarioConfigFile.getName();
-
-                if (testName.endsWith("-input.txt")) {
-
-                    // ******************************************************
-                    // process scenario input file. Read the user inputs
-                    // ******************************************************
-
-                    try (Scanner inputScanner = new Scanner(scenarioConfigFile)) {
-                        while (inputScanner.hasNext())
-                            inputs.add(inputScanner.nextLine());
-                    }
-
-                } else if (testName.endsWith("-board.txt")) {
-
-                    // ******************************************************
-                    // process scenario input file
-                    // ******************************************************
-
-                    try (Scanner boardScanner = new Scanner(scenarioConfigFile)) {
-
-                        // read board configuration inputs for the game
-                        while (boardScanner.hasNext())
-                            configBuilder.append(boardScanner.nextLine()).append('\n');
-                    }
-
-                } else if (testName.endsWith("-expectedOutput.txt")) {
-
-                    // ******************************************************
-                    // process scenario expected output file
-                    // ******************************************************
+        File scenarioDirectory = new File(System.getProperty("test.scenarios", "../test_scenarios"));
 
-                    try (Scanner expectedOutputScanner = new Scanner(scenarioConfigFile)) {
-                        while (expectedOutputScanner.hasNext())
-                            expectedOutput.add(expectedOutputScanner.nextLine());
-                    }
-                }
-            }
-
-            scenarioObjects.add(new Object[] { testName.substring(0, testName.indexOf('-')), configBuilder.toString(),
-                    inputs, expectedOutput });
-        }
-
-        return scenarioObjects;
-    }
-
-    /**
-     * This function takes three parameters and produce nothing
-     * 
-     * https://www.javatips.net/api/mdk-master/src/main/java/gov/nasa/jpl/mbee/mdk/api/function/TriConsumer.java
-     * 
-     * Created by igomes on 9/15/16.
-     *
-     * Represents an operation that accepts three input arguments and returns no
-     * result. This is the three-arity specialization of {@link Consumer}. Unlike
-     * most other functional interfaces, {@code TriConsumer} is expected to operate
-     * via side-effects.
-     * <p>
-     * <p>
-     * This is a <a href="package-summary.html">functional interface</a> whose
-     * functional method is {@link #accept(Object, Object, Object)}.
-     *
-     * @param <T> the type of the first argument to the operation
-     * @param <U> the type of the second argument to the operation
-     * @param <V> the type of the third argument to the operation
-     * @see Consumer
-     * @since 1.8
-     */
-    @FunctionalInterface
-    public interface TriConsumer<T, U, V> {
-
-        /**
-         * Performs this operation on the given arguments.
-         *
-         * @param t the first input argument
-         * @param u the second input argument
-         */
-        void accept(T t, U u, V v);
-
-        /**
-         * Returns a composed {@code BiConsumer} that performs, in sequence, this
-         * operation followed by the {@code after} operation. If performing either
-         * operation throws an exception, it is relayed to the caller of the composed
-         * operation. If performing this operation throws an exception, the
-         * {@code after} operation will not be performed.
-         *
-         * @param after the operation to perform after this operation
-         * @return a composed {@code BiConsumer} that performs in sequence this
-         *         operation followed by the {@code after} operation
-         * @throws NullPointerException if {@code after} is null
-         */
-        default TriConsumer<T, U, V> andThen(TriConsumer<? super T, ? super U, ? super V> after) {
-            Objects.requireNonNull(after);
-
-            return (l, r, s) -> {
-                accept(l, r, s);
-                after.accept(l, r, s);
-            };
-        }
-    }
-
-    /**
-     * This method
-     * 
-     * @param <T1>
-     * @param <T2>
-     * @param c1
-     * @param c2
-     * @param consumer
-     */
-    private static <T1, T2> void iterateSimultaneously(Iterable<T1> c1, Iterable<T2> c2,
-            TriConsumer<T1, T2, Integer> consumer) {
-        Iterator<T1> i1 = c1.iterator();
-        Iterator<T2> i2 = c2.iterator();
-        int index = 0;
-        while (i1.hasNext() && i2.hasNext()) {
-            index = index + 1;
-            consumer.accept(i1.next(), i2.next(), index);
-        }
+        // Scenarios are parsed once and kept in an index next to them. Parameters only
+        // point to the scenarios in the index, see ScenarioCorpus
+        return ScenarioCorpus.load(scenarioDirectory);
     }
 
     @Before
     public void createDefatulConfigIni() throws FileNotFoundException {
-        File configIni = new File(MinesweeperTestUtils.getMinesweeper(), "config.ini");
+        File configIni = new File(MinesweeperTestUtils.getMinesweeperHome(), "config.ini");
         if (configIni.exists()) {
             boolean deleted = configIni.delete();
             if (!deleted) {
@@ -212,7 +82,7 @@ public class ScenarioTest {
 
     @After
     public void deleteDefatulConfigIni() {
-        File configIni = new File(MinesweeperTestUtils.getMinesweeper(), "config.ini");
+        File configIni = new File(MinesweeperTestUtils.getMinesweeperHome(), "config.ini");
         if (configIni.exists()) {
             boolean deleted = configIni.delete();
             if (!deleted) {
@@ -235,20 +105,82 @@ public class ScenarioTest {
         List<String> inputSequence = new ArrayList<>(inputs);
 
         // Execute Minesweeper in a separate process starting it with the boardCfgFile
-        // and passing the inputSequence
-        Map<String, Object> result = MinesweeperTestUtils.execute(boardCfgFile, inputSequence);
-        String stdOut = (String) result.get("stdOut");
-
-        List<String> actualOutputLines = Arrays.asList(stdOut.split("\n"));
+        // and passing the inputSequence. Its output is compared while it runs, so
+        // Minesweeper is stopped at the first difference
+        StreamingComparator comparator = new StreamingComparator(expectedOutput);
+        MinesweeperTestUtils.execute(boardCfgFile, inputSequence, comparator);
 
         // Report only the first difference
-        iterateSimultaneously(actualOutputLines, expectedOutput,
-                (String actualLine, String expectedLine, Integer lineNumber) -> {
-                    MatcherAssert.assertThat(
-                            MinesweeperTestUtils.MINESWEEPER_CLASS_NAME
-                                    + " did not produce the expected output on Line " + lineNumber,
-                            actualLine, Matchers.equalTo(expectedLine));
-                });
+        comparator.assertMatched();
+    }
+
+    /**
+     * Compares the lines printed by Minesweeper with the expected output as they
+     * come, and stops Minesweeper at the first difference or once all the expected
+     * lines have been matched. It reports the same difference as splitting the
+     * whole stdOut on "\n" and comparing the lines one by one: empty lines at the
+     * end of the output are not compared, and no output at all counts as a single
+     * empty line.
+     */
+    static final class StreamingComparator implements MinesweeperTestUtils.OutputObserver {
+
+        private final List<String> expectedOutput;
+
+        private int lineNumber = 0;
+        private int pendingEmptyLines = 0;
+        private boolean anyLine = false;
+
+        private String actualLine;
+        private String expectedLine;
+
+        StreamingComparator(List<String> expectedOutput) {
+            this.expectedOutput = expectedOutput;
+        }
 
+        @Override
+        public boolean test(String line) {
+            anyLine = true;
+            if (line.isEmpty()) {
+                // Compared only if something else follows
+                pendingEmptyLines++;
+                return true;
+            }
+            for (; pendingEmptyLines > 0; pendingEmptyLines--) {
+                if (!compare("")) {
+                    return false;
+                }
+            }
+            return compare(line);
+        }
+
+        private boolean compare(String line) {
+            lineNumber = lineNumber + 1;
+            if (lineNumber > expectedOutput.size()) {
+                return false;
+            }
+            if (!expectedOutput.get(lineNumber - 1).equals(line)) {
+                actualLine = line;
+                expectedLine = expectedOutput.get(lineNumber - 1);
+                return false;
+            }
+            return lineNumber < expectedOutput.size();
+        }
+
+        @Override
+        public boolean isSatisfied() {
+            // Stopped after the last expected line, without a difference
+            return actualLine == null;
+        }
+
+        void assertMatched() {
+            if (!anyLine) {
+                compare("");
+            }
+            if (actualLine != null) {
+                MatcherAssert.assertThat(MinesweeperTestUtils.MINESWEEPER_CLASS_NAME
+                        + " did not produce the expected output on Line " + lineNumber, actualLine,
+                        Matchers.equalTo(expectedLine));
+            }
+        }
     }
 }
\ No newline at end of file
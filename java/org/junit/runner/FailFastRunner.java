@@ -0,0 +1,55 @@
+package org.junit.runner;
+
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runner.notification.StoppedByUserException;
+
+/**
+ * Runs the given runner until the first failure. </br>
+ *
+ * Tests that are running when the first test fails finish, but no other test
+ * starts: RunNotifier.pleaseStop() makes the runners throw
+ * StoppedByUserException, which ends the run as if it was complete, so
+ * listeners still receive testRunFinished.
+ *
+ */
+final class FailFastRunner extends Runner {
+
+	private final Runner runner;
+
+	private volatile boolean stopped = false;
+
+	FailFastRunner(Runner runner) {
+		this.runner = runner;
+	}
+
+	@Override
+	public Description getDescription() {
+		return runner.getDescription();
+	}
+
+	@Override
+	public void run(RunNotifier notifier) {
+		notifier.addListener(new RunListener() {
+
+			@Override
+			public void testFailure(Failure failure) {
+				stopped = true;
+				notifier.pleaseStop();
+			}
+		});
+		try {
+			runner.run(notifier);
+		} catch (StoppedByUserException e) {
+			// The failure is reported already
+		}
+	}
+
+	/**
+	 * @return whether the run stopped at a failure
+	 */
+	boolean isStopped() {
+		return stopped;
+	}
+}
@@ -1,15 +1,23 @@
 package org.junit.runner;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.experimental.categories.Category;
 import org.junit.internal.TextListener;
 import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.manipulation.Sorter;
 import org.junit.runner.notification.Failure;
 
 /**
@@ -34,19 +42,59 @@ public class PSTestRunner {
 
 	static final class SuppressingOutputTextListener extends TextListener {
 
+		/*
+		 * When tests run in parallel, we keep what is printed for a test until it
+		 * finishes, so the lines of different tests do not interleave. Null means
+		 * print right away.
+		 */
+		private final Map<Description, StringBuilder> pending;
+
+		/*
+		 * System.out when the listener was created. In-process executions replace
+		 * System.out while Minesweeper runs, and that must not capture the lines of
+		 * the tests running at the same time.
+		 */
+		private final PrintStream out;
+
 		public SuppressingOutputTextListener(PrintStream writer) {
+			this(writer, false);
+		}
+
+		public SuppressingOutputTextListener(PrintStream writer, boolean buffered) {
 			super(writer);
+			this.out = writer;
+			this.pending = buffered ? new ConcurrentHashMap<Description, StringBuilder>() : null;
+		}
+
+		private void print(Description description, String line) {
+			StringBuilder buffer = pending != null ? pending.get(description) : null;
+			if (buffer == null) {
+				out.println(line);
+			} else {
+				buffer.append(line).append(System.lineSeparator());
+			}
 		}
 
 		@Override
 		public void testAssumptionFailure(org.junit.runner.notification.Failure failure) {
-			System.out.println(
+			print(failure.getDescription(),
 					"Assumption not met for " + failure.getDescription().getClassName() + ": " + failure.getMessage());
 		}
 
 		@Override
 		public void testStarted(Description description) {
-			System.out.println("\t - Running test: " + description.getClassName() + "." + description.getMethodName());
+			if (pending != null) {
+				pending.put(description, new StringBuilder());
+			}
+			print(description, "\t - Running test: " + description.getClassName() + "." + description.getMethodName());
+		}
+
+		@Override
+		public void testFinished(Description description) {
+			StringBuilder buffer = pending != null ? pending.remove(description) : null;
+			if (buffer != null) {
+				out.print(buffer);
+			}
 		}
 
 		@Override
@@ -57,8 +105,66 @@ public class PSTestRunner {
 
 	public final static String INCLUDE_CATEGORY = "ps.assignment.category";
 
+	/*
+	 * How many tests can run at the same time. By default, tests run one after the
+	 * other.
+	 */
+	public final static String PARALLELISM = "ps.parallelism";
+
+	/*
+	 * When true, report how long the phases of the executions of Minesweeper take
+	 * at the end of the run, see PhaseTimings
+	 */
+	public final static String TIMINGS = "ps.timings";
+
+	/*
+	 * When true, run only the tests that might not pass anymore since the last
+	 * run, see TestSelection. Their verdicts are stored in SELECTION_FILE, by
+	 * default a file for MINESWEEPER_HOME in the temp folder.
+	 */
+	public final static String SELECTION = "ps.selection";
+	public final static String SELECTION_FILE = "ps.selection.file";
+
+	/*
+	 * File with the durations and outcomes of the tests in earlier runs, see
+	 * TestHistory. It is read and updated only if set, and tests that failed the
+	 * last time run first, then the longest ones.
+	 */
+	public final static String HISTORY = "ps.history";
+
+	/*
+	 * Option to run only a shard of the tests, e.g., --shard=2/4, see ShardFilter
+	 */
+	public final static String SHARD_OPTION = "--shard=";
+
+	/*
+	 * The shard given with SHARD_OPTION, if any, for the tests to see
+	 */
+	public final static String SHARD = "ps.shard";
+
+	/*
+	 * Option to stop the run at the first failure, see FailFastRunner
+	 */
+	public final static String FAIL_FAST_OPTION = "--fail-fast";
+
 	public static void main(String[] args) throws ClassNotFoundException {
 
+		// Options of PSTestRunner, the other arguments are for JUnit
+		String shard = null;
+		boolean failFast = false;
+		List<String> junitArgs = new ArrayList<String>();
+		for (String arg : args) {
+			if (FAIL_FAST_OPTION.equals(arg)) {
+				failFast = true;
+			} else if (arg.startsWith(SHARD_OPTION)) {
+				shard = arg.substring(SHARD_OPTION.length());
+				System.setProperty(SHARD, shard);
+			} else {
+				junitArgs.add(arg);
+			}
+		}
+		args = junitArgs.toArray(new String[0]);
+
 		String categoryName = System.getProperties().getProperty(INCLUDE_CATEGORY);
 
 		System.out.println("");
@@ -147,12 +253,132 @@ public class PSTestRunner {
 
 		}
 
-		junit.addListener(new SuppressingOutputTextListener(System.out));
+		TestHistory history = null;
+		String historyFile = System.getProperty(HISTORY);
+		if (historyFile != null && historyFile.trim().length() > 0) {
+			try {
+				history = TestHistory.load(new File(historyFile));
+			} catch (IOException e) {
+				System.out.println("Cannot read the history of the tests: " + e);
+			}
+		}
+
+		TestSelection selection = null;
+		if (Boolean.getBoolean(SELECTION)) {
+			try {
+				selection = TestSelection.activate(getSelectionFile(), getFolder("minesweeper.home"),
+						getFolder("test.data"), getFolder("test.scenarios"));
+			} catch (IOException e) {
+				System.out.println("Cannot select the tests, running all of them: " + e);
+			}
+		}
+
+		// Create the runners only once
+		Runner runner = request.getRunner();
+		if (shard != null) {
+			// Shards are computed on the whole plan, so they are the same for each runner
+			ShardFilter shardFilter = ShardFilter.parse(shard, runner.getDescription(), history);
+			System.out.println(shardFilter.getSummary());
+			System.out.println("");
+			try {
+				shardFilter.apply(runner);
+			} catch (NoTestsRemainException e) {
+				runner = Request.classes().getRunner();
+			}
+		}
+		if (selection != null) {
+			try {
+				selection.getFilter().apply(runner);
+			} catch (NoTestsRemainException e) {
+				// Nothing changed
+				runner = Request.classes().getRunner();
+			}
+		}
+		if (history != null) {
+			new Sorter(history.getComparator()).apply(runner);
+		}
+
+		int parallelism = Integer.getInteger(PARALLELISM, 1);
+
+		junit.addListener(new SuppressingOutputTextListener(System.out, parallelism > 1));
+
+		PhaseTimings timings = null;
+		if (Boolean.getBoolean(TIMINGS)) {
+			timings = PhaseTimings.activate();
+			junit.addListener(timings);
+		}
+
+		if (selection != null) {
+			junit.addListener(selection);
+		}
+
+		if (history != null) {
+			junit.addListener(history);
+		}
+
+		FailFastRunner failFastRunner = failFast ? new FailFastRunner(runner) : null;
+
+		Result result;
+		if (parallelism > 1) {
+			// Let the runners schedule their children
+			ParallelTestScheduler scheduler = new ParallelTestScheduler(parallelism);
+			scheduler.configure(runner);
+			try {
+				result = junit.run(failFastRunner != null ? failFastRunner : runner);
+			} finally {
+				scheduler.shutdown();
+			}
+		} else {
+			result = junit.run(failFastRunner != null ? failFastRunner : runner);
+		}
+
+		if (failFastRunner != null && failFastRunner.isStopped()) {
+			System.out.println("Stopped at the first failure, other tests did not run");
+		}
+
+		if (timings != null) {
+			timings.report(System.out);
+		}
+
+		if (selection != null) {
+			selection.report(System.out);
+			try {
+				selection.save();
+			} catch (IOException e) {
+				System.out.println("Cannot store the verdicts of the tests: " + e);
+			}
+		}
 
-		Result result = junit.run(request);
+		if (history != null) {
+			try {
+				history.save();
+			} catch (IOException e) {
+				System.out.println("Cannot store the history of the tests: " + e);
+			}
+		}
 
 		System.exit(result.wasSuccessful() ? 0 : 1);
 
 	}
 
+	private static File getFolder(String property) {
+		String folder = System.getProperty(property);
+		return folder == null || folder.trim().isEmpty() ? null : new File(folder);
+	}
+
+	/*
+	 * Verdicts of different submissions must not mix, so each MINESWEEPER_HOME
+	 * has its own file by default
+	 */
+	private static File getSelectionFile() {
+		String file = System.getProperty(SELECTION_FILE);
+		if (file != null && file.trim().length() > 0) {
+			return new File(file);
+		}
+		File minesweeperHome = getFolder("minesweeper.home");
+		String name = minesweeperHome == null ? "none" : minesweeperHome.getAbsolutePath();
+		return new File(new File(System.getProperty("java.io.tmpdir"), "ps-selection"),
+				Integer.toHexString(name.hashCode()) + ".txt");
+	}
+
 }
@@ -0,0 +1,152 @@
+package org.junit.runner;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.runners.ParentRunner;
+import org.junit.runners.model.RunnerScheduler;
+
+/**
+ * Configures a tree of runners to execute tests on a bounded pool of threads.
+ * JUnit's ParallelComputer does something similar, but uses unbounded pools and
+ * only reaches the test classes, not the parameters of a Parameterized test.
+ * </br>
+ *
+ * Runners are organized in (at most) three levels, and each level uses its own
+ * pool so that no task ever waits for a task in the same pool:
+ * <ul>
+ * <li>the root runner (e.g., the suite of all the test classes) runs in the
+ * main thread and schedules its children on the "parents" pool;</li>
+ * <li>the children of the root (e.g., the test classes, or the parameters of a
+ * Parameterized test) schedule their children on the "leaves" pool;</li>
+ * <li>whatever runs in the "leaves" pool (e.g., a test method, or a
+ * parameter of a Parameterized test with its test methods) runs serially.</li>
+ * </ul>
+ * Both pools have as many threads as the requested parallelism, and threads in
+ * the parents pool only wait for the leaves.
+ *
+ */
+final class ParallelTestScheduler {
+
+	private final ExecutorService parents;
+
+	private final ExecutorService leaves;
+
+	/**
+	 * Runs the children of a runner on the given pool and waits for them to
+	 * finish.
+	 */
+	static final class PoolScheduler implements RunnerScheduler {
+
+		private final ExecutorService pool;
+
+		private final List<Future<?>> scheduled = new ArrayList<Future<?>>();
+
+		PoolScheduler(ExecutorService pool) {
+			this.pool = pool;
+		}
+
+		@Override
+		public void schedule(Runnable childStatement) {
+			scheduled.add(pool.submit(childStatement));
+		}
+
+		@Override
+		public void finished() {
+			RuntimeException firstException = null;
+			for (Future<?> child : scheduled) {
+				try {
+					child.get();
+				} catch (ExecutionException e) {
+					// Failures are reported to the notifier, this is something like
+					// StoppedByUserException
+					if (firstException == null) {
+						firstException = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+								: new RuntimeException(e.getCause());
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+			scheduled.clear();
+			if (firstException != null) {
+				throw firstException;
+			}
+		}
+	}
+
+	ParallelTestScheduler(int parallelism) {
+		this.parents = Executors.newFixedThreadPool(parallelism, daemonThreads("ps-parents"));
+		this.leaves = Executors.newFixedThreadPool(parallelism, daemonThreads("ps-leaves"));
+	}
+
+	/**
+	 * Set the schedulers of the given runner and its descendants.
+	 *
+	 * @param root
+	 */
+	void configure(Runner root) {
+		if (!(root instanceof ParentRunner)) {
+			return;
+		}
+		ParentRunner<?> parent = (ParentRunner<?>) root;
+		List<?> children = getChildren(parent);
+		if (!hasRunnerChildren(children)) {
+			// A single test class
+			parent.setScheduler(new PoolScheduler(leaves));
+			return;
+		}
+
+		parent.setScheduler(new PoolScheduler(parents));
+		for (Object child : children) {
+			if (child instanceof ParentRunner) {
+				// Whatever child of these runners is, it runs serially on the leaves
+				((ParentRunner<?>) child).setScheduler(new PoolScheduler(leaves));
+			}
+		}
+	}
+
+	void shutdown() {
+		parents.shutdownNow();
+		leaves.shutdownNow();
+	}
+
+	private static boolean hasRunnerChildren(List<?> children) {
+		for (Object child : children) {
+			if (child instanceof Runner) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static List<?> getChildren(ParentRunner<?> runner) {
+		try {
+			// getChildren is protected, and we are not in the same package
+			Method getChildren = ParentRunner.class.getDeclaredMethod("getChildren");
+			getChildren.setAccessible(true);
+			return (List<?>) getChildren.invoke(runner);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Without children, this runner is handled like a single test class
+			return Collections.emptyList();
+		}
+	}
+
+	private static ThreadFactory daemonThreads(String prefix) {
+		final AtomicInteger count = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+}
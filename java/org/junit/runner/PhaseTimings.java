@@ -0,0 +1,147 @@
+package org.junit.runner;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.runner.notification.RunListener;
+
+/**
+ * Collects how long each phase of the executions of Minesweeper takes, and
+ * reports percentiles for each test and for the whole run. Executions report the
+ * System.nanoTime() at the end of each phase, see record(). </br>
+ *
+ * Executions are attributed to the test running on the thread that records them
+ * (or on the thread that started it, e.g., for tests with a timeout).
+ *
+ */
+public class PhaseTimings extends RunListener {
+
+	// Timestamps that executions report, in the order they happen
+	public final static String STARTED = "started";
+	public final static String SPAWNED = "spawned";
+	public final static String FIRST_OUTPUT = "firstOutput";
+	public final static String DRAINED = "drained";
+	public final static String REAPED = "reaped";
+
+	// Each phase goes from a timestamp to another
+	private final static String[][] PHASES = { //
+			{ "spawn", STARTED, SPAWNED }, //
+			{ "boot", SPAWNED, FIRST_OUTPUT }, //
+			{ "output", FIRST_OUTPUT, DRAINED }, //
+			{ "reap", DRAINED, REAPED }, //
+			{ "total", STARTED, REAPED } };
+
+	private final static double[] PERCENTILES = { 50, 90, 99 };
+
+	// Only while PSTestRunner runs with PSTestRunner.TIMINGS
+	private static volatile PhaseTimings active;
+
+	private final InheritableThreadLocal<Description> currentTest = new InheritableThreadLocal<Description>();
+
+	// Durations of the phases of each execution, -1 if the phase was not observed
+	private final Map<Description, List<long[]>> byTest = new LinkedHashMap<Description, List<long[]>>();
+	private final List<long[]> all = new ArrayList<long[]>();
+
+	static PhaseTimings activate() {
+		active = new PhaseTimings();
+		return active;
+	}
+
+	/**
+	 * Record the timestamps of an execution of Minesweeper, if timings are
+	 * collected.
+	 *
+	 * @param timestamps System.nanoTime() at STARTED, SPAWNED, FIRST_OUTPUT,
+	 *                   DRAINED and REAPED. Missing phases are ignored.
+	 */
+	public static void record(Map<String, Long> timestamps) {
+		PhaseTimings timings = active;
+		if (timings == null) {
+			return;
+		}
+
+		long[] durations = new long[PHASES.length];
+		for (int i = 0; i < PHASES.length; i++) {
+			Long from = timestamps.get(PHASES[i][1]);
+			Long to = timestamps.get(PHASES[i][2]);
+			durations[i] = from != null && to != null ? Math.max(0, to - from) : -1;
+		}
+
+		Description test = timings.currentTest.get();
+		synchronized (timings) {
+			timings.all.add(durations);
+			if (test != null) {
+				timings.byTest.computeIfAbsent(test, t -> new ArrayList<long[]>()).add(durations);
+			}
+		}
+	}
+
+	@Override
+	public void testStarted(Description description) {
+		currentTest.set(description);
+	}
+
+	@Override
+	public void testFinished(Description description) {
+		currentTest.remove();
+	}
+
+	/**
+	 * Print the percentiles of each phase over all the executions, then the
+	 * percentiles of each test, slowest first.
+	 *
+	 * @param out
+	 */
+	public synchronized void report(PrintStream out) {
+		out.println("");
+		out.println("Execution phases (ms) of " + all.size() + " executions:");
+		out.println(String.format("\t%-8s%10s%10s%10s%10s", "phase", "p50", "p90", "p99", "max"));
+		for (int i = 0; i < PHASES.length; i++) {
+			long[] sorted = sorted(all, i);
+			if (sorted.length == 0) {
+				continue;
+			}
+			out.println(String.format("\t%-8s%10.1f%10.1f%10.1f%10.1f", PHASES[i][0], millis(sorted, PERCENTILES[0]),
+					millis(sorted, PERCENTILES[1]), millis(sorted, PERCENTILES[2]), millis(sorted, 100)));
+		}
+
+		List<Map.Entry<Description, List<long[]>>> tests = new ArrayList<Map.Entry<Description, List<long[]>>>(
+				byTest.entrySet());
+		int total = PHASES.length - 1;
+		Collections.sort(tests, (a, b) -> Double.compare(millis(sorted(b.getValue(), total), 100),
+				millis(sorted(a.getValue(), total), 100)));
+
+		out.println("");
+		out.println("Execution phases (ms) of each test, p50/p90/max:");
+		for (Map.Entry<Description, List<long[]>> test : tests) {
+			StringBuilder line = new StringBuilder("\t").append(test.getKey().getClassName()).append('.')
+					.append(test.getKey().getMethodName()).append(" (").append(test.getValue().size()).append("):");
+			for (int i = 0; i < PHASES.length; i++) {
+				long[] sorted = sorted(test.getValue(), i);
+				if (sorted.length > 0) {
+					line.append(String.format(" %s %.1f/%.1f/%.1f", PHASES[i][0], millis(sorted, 50), millis(sorted, 90),
+							millis(sorted, 100)));
+				}
+			}
+			out.println(line);
+		}
+	}
+
+	private static long[] sorted(List<long[]> executions, int phase) {
+		return executions.stream().mapToLong(durations -> durations[phase]).filter(duration -> duration >= 0)
+				.sorted().toArray();
+	}
+
+	// Nearest-rank percentile
+	private static double millis(long[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)] / 1e6;
+	}
+}
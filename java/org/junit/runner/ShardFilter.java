@@ -0,0 +1,156 @@
+package org.junit.runner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.runner.manipulation.Filter;
+
+/**
+ * Keeps the tests of one of n shards of the test plan, so that n runners, each
+ * with its own shard, run all the tests once. </br>
+ *
+ * The plan is split down to single tests, including each parameter of a
+ * Parameterized test. Shards have roughly the same expected duration: tests
+ * are assigned longest first, each to the shard with the least expected
+ * duration so far. Durations come from the TestHistory, tests that are not in
+ * it take the average duration, and without any history every test counts the
+ * same. The assignment depends only on the plan and on the history, so every
+ * runner must read the same history to compute the same shards.
+ *
+ */
+final class ShardFilter extends Filter {
+
+	private final int shard;
+
+	private final int shards;
+
+	private final Set<Description> assigned = new HashSet<Description>();
+
+	private final int plannedTests;
+
+	// Whether durations come from the history
+	private final boolean timed;
+
+	private final long expectedDuration;
+
+	/**
+	 * Split the given plan.
+	 *
+	 * @param plan
+	 * @param shard   starting from 1
+	 * @param shards
+	 * @param history can be null
+	 */
+	ShardFilter(Description plan, int shard, int shards, TestHistory history) {
+		this.shard = shard;
+		this.shards = shards;
+
+		List<Description> tests = new ArrayList<Description>();
+		collectTests(plan, tests);
+		plannedTests = tests.size();
+
+		// The expected duration of each test, in the same order
+		List<Long> durations = new ArrayList<Long>();
+		long known = 0;
+		int knownTests = 0;
+		for (Description test : tests) {
+			Long duration = history != null ? history.getDuration(test) : null;
+			durations.add(duration);
+			if (duration != null) {
+				known += duration;
+				knownTests++;
+			}
+		}
+		timed = knownTests > 0;
+		long average = knownTests > 0 ? Math.max(1, known / knownTests) : 1;
+
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < tests.size(); i++) {
+			order.add(i);
+			if (durations.get(i) == null) {
+				durations.set(i, average);
+			}
+		}
+		// Longest first, then by name so that every runner gets the same order
+		Collections.sort(order, Comparator.comparing((Integer i) -> durations.get(i)).reversed()
+				.thenComparing(i -> tests.get(i).getDisplayName()));
+
+		long[] totals = new long[shards];
+		for (int i : order) {
+			int lightest = 0;
+			for (int s = 1; s < shards; s++) {
+				if (totals[s] < totals[lightest]) {
+					lightest = s;
+				}
+			}
+			totals[lightest] += durations.get(i);
+			if (lightest == shard - 1) {
+				assigned.add(tests.get(i));
+			}
+		}
+		expectedDuration = totals[shard - 1];
+	}
+
+	/**
+	 * Parse a shard given as "i/n", with 1 <= i <= n.
+	 *
+	 * @param value
+	 * @param plan
+	 * @param history can be null
+	 * @return
+	 * @throws IllegalArgumentException if value is not a valid shard
+	 */
+	static ShardFilter parse(String value, Description plan, TestHistory history) {
+		String[] parts = value.split("/");
+		try {
+			int shard = Integer.parseInt(parts[0].trim());
+			int shards = Integer.parseInt(parts[1].trim());
+			if (parts.length == 2 && shards >= 1 && shard >= 1 && shard <= shards) {
+				return new ShardFilter(plan, shard, shards, history);
+			}
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			// Reported below
+		}
+		throw new IllegalArgumentException("Invalid shard " + value + ", expected i/n with 1 <= i <= n");
+	}
+
+	private static void collectTests(Description description, List<Description> tests) {
+		if (description.isTest()) {
+			tests.add(description);
+		}
+		for (Description child : description.getChildren()) {
+			collectTests(child, tests);
+		}
+	}
+
+	@Override
+	public boolean shouldRun(Description description) {
+		if (description.isTest()) {
+			return assigned.contains(description);
+		}
+		for (Description child : description.getChildren()) {
+			if (shouldRun(child)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String describe() {
+		return "Shard " + shard + "/" + shards;
+	}
+
+	/**
+	 * @return what this shard runs, e.g., "Shard 1/4: 16 of 62 tests, about 2.5
+	 *         s"
+	 */
+	String getSummary() {
+		return describe() + ": " + assigned.size() + " of " + plannedTests + " tests"
+				+ (timed ? String.format(", about %.1f s", expectedDuration / 1000.0) : ", by count (no history)");
+	}
+}
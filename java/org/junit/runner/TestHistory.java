@@ -0,0 +1,224 @@
+package org.junit.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * How long each test took in earlier runs and whether it failed the last time
+ * it ran, stored in a text file with a line for each test. </br>
+ *
+ * The duration of a test is measured from testStarted to testFinished, and the
+ * expected duration of the next run is the average of the last measure and the
+ * previous expected duration, so a single slow run does not count too much.
+ * Runners that share the file (e.g., the shards of a run) merge their measures
+ * into it when they save. </br>
+ *
+ * getComparator() orders the tests so that those that failed the last time run
+ * first, to report failures as soon as possible, and then the longest first, so
+ * that parallel runs do not end waiting for a long test that started last.
+ *
+ */
+public class TestHistory extends RunListener {
+
+	private final static String HEADER = "# PSTestRunner history v2";
+
+	private final static String PASSED = "passed";
+	private final static String FAILED = "failed";
+
+	/**
+	 * What happened the last time a test ran
+	 */
+	static final class Run {
+
+		// Expected milliseconds
+		final long duration;
+		final String outcome;
+
+		Run(long duration, String outcome) {
+			this.duration = duration;
+			this.outcome = outcome;
+		}
+	}
+
+	private final File file;
+
+	// Tests of earlier runs, by display name
+	private final Map<String, Run> runs;
+
+	private final Map<Description, Long> started = new ConcurrentHashMap<Description, Long>();
+	private final Map<String, Boolean> failures = new ConcurrentHashMap<String, Boolean>();
+	private final Map<String, Long> measured = new ConcurrentHashMap<String, Long>();
+
+	private TestHistory(File file, Map<String, Run> runs) {
+		this.file = file;
+		this.runs = runs;
+	}
+
+	/**
+	 * Read the history in the given file, if any.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	static TestHistory load(File file) throws IOException {
+		return new TestHistory(file, read(file));
+	}
+
+	/**
+	 * @param test
+	 * @return the milliseconds that the given test is expected to take, or null if
+	 *         it never ran
+	 */
+	Long getDuration(Description test) {
+		Run run = runs.get(test.getDisplayName());
+		return run != null ? run.duration : null;
+	}
+
+	/**
+	 * @param test
+	 * @return whether the given test failed the last time it ran
+	 */
+	boolean hasFailed(Description test) {
+		Run run = runs.get(test.getDisplayName());
+		return run != null && FAILED.equals(run.outcome);
+	}
+
+	/**
+	 * Return the order in which tests should run: first the tests (or the classes
+	 * with tests) that failed the last time, then the longest tests (or classes)
+	 * first. Tests that never ran take the average duration.
+	 *
+	 * @return
+	 */
+	Comparator<Description> getComparator() {
+		long known = 0;
+		for (Run run : runs.values()) {
+			known += run.duration;
+		}
+		long average = runs.isEmpty() ? 1 : Math.max(1, known / runs.size());
+
+		// Descriptions are compared many times, and their children do not change
+		Map<Description, long[]> keys = new ConcurrentHashMap<Description, long[]>();
+		Function<Description, long[]> key = new Function<Description, long[]>() {
+
+			@Override
+			public long[] apply(Description description) {
+				long[] cached = keys.get(description);
+				if (cached != null) {
+					return cached;
+				}
+				// How many tests failed, and the expected duration
+				long[] computed = new long[2];
+				if (description.isTest()) {
+					computed[0] = hasFailed(description) ? 1 : 0;
+					Long duration = getDuration(description);
+					computed[1] = duration != null ? duration : average;
+				}
+				for (Description child : description.getChildren()) {
+					long[] childKey = apply(child);
+					computed[0] += childKey[0];
+					computed[1] += childKey[1];
+				}
+				keys.put(description, computed);
+				return computed;
+			}
+		};
+		return (a, b) -> {
+			long[] keyA = key.apply(a);
+			long[] keyB = key.apply(b);
+			if ((keyA[0] > 0) != (keyB[0] > 0)) {
+				return keyA[0] > 0 ? -1 : 1;
+			}
+			return Long.compare(keyB[1], keyA[1]);
+		};
+	}
+
+	@Override
+	public void testStarted(Description description) {
+		started.put(description, System.nanoTime());
+	}
+
+	@Override
+	public void testFailure(Failure failure) {
+		failures.put(failure.getDescription().getDisplayName(), true);
+	}
+
+	@Override
+	public void testFinished(Description description) {
+		Long start = started.remove(description);
+		if (start != null) {
+			measured.put(description.getDisplayName(), (System.nanoTime() - start) / 1000000);
+		}
+	}
+
+	/**
+	 * Add the durations measured in this run to those in the file, which other
+	 * runners might have updated in the meantime.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void save() throws IOException {
+		Map<String, Run> merged = read(file);
+		for (Map.Entry<String, Long> test : measured.entrySet()) {
+			Run previous = runs.get(test.getKey());
+			long duration = previous == null ? test.getValue() : (previous.duration + test.getValue()) / 2;
+			merged.put(test.getKey(), new Run(duration, failures.containsKey(test.getKey()) ? FAILED : PASSED));
+		}
+
+		List<String> lines = new ArrayList<String>();
+		lines.add(HEADER);
+		for (Map.Entry<String, Run> test : merged.entrySet()) {
+			lines.add(test.getValue().duration + "\t" + test.getValue().outcome + "\t" + test.getKey());
+		}
+		File parent = file.getAbsoluteFile().getParentFile();
+		parent.mkdirs();
+		Path temp = Files.createTempFile(parent.toPath(), file.getName(), ".tmp");
+		try {
+			Files.write(temp, lines, StandardCharsets.UTF_8);
+			try {
+				Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static Map<String, Run> read(File file) throws IOException {
+		Map<String, Run> runs = new LinkedHashMap<String, Run>();
+		if (!file.isFile()) {
+			return runs;
+		}
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+			// Written by another version, start over
+			return runs;
+		}
+		for (String line : lines.subList(1, lines.size())) {
+			String[] fields = line.split("\t", 3);
+			try {
+				runs.put(fields[2], new Run(Long.parseLong(fields[0]), fields[1]));
+			} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+				// Not a line we wrote
+			}
+		}
+		return runs;
+	}
+}
@@ -0,0 +1,419 @@
+package org.junit.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * Runs only the tests that might have a different verdict than the last time
+ * they passed. </br>
+ *
+ * While a test runs, the executions of Minesweeper report which classes of
+ * MINESWEEPER_HOME they loaded (see record()). When the test finishes, its
+ * verdict is stored together with a fingerprint of the content of those
+ * classes. On the next run, a test that passed is not run again if the
+ * fingerprint of the same classes did not change, e.g., because the submission
+ * changed only classes that the test never loaded. </br>
+ *
+ * Every fingerprint also covers the classes of the tests, the names of all the
+ * classes of MINESWEEPER_HOME (a new class can change what Minesweeper loads),
+ * the other files of MINESWEEPER_HOME except config.ini, the files in the test
+ * data and scenario folders, and the properties that choose the Minesweeper
+ * class, the JVM and how it runs, so changing any of them runs all the tests
+ * again. Tests that failed, or whose executions did not report their classes
+ * (e.g., in JVMs of the pool), depend on all the classes of MINESWEEPER_HOME.
+ *
+ */
+public class TestSelection extends RunListener {
+
+	private final static String HEADER = "# PSTestRunner selection v2";
+
+	private final static String PASSED = "passed";
+	private final static String FAILED = "failed";
+	private final static String SKIPPED = "skipped";
+
+	// Settings that choose what runs Minesweeper, and how
+	private final static String[] PROPERTIES = { "java.version", "minesweeper.name", "minesweeper.java",
+			"minesweeper.execution", "minesweeper.jvm.profile", "minesweeper.cds" };
+
+	// The classes of a test that depends on all of them
+	private final static String ALL_CLASSES = "*";
+
+	/**
+	 * The verdict of a test and what it depended on
+	 */
+	static final class Verdict {
+
+		final String outcome;
+		final String fingerprint;
+		// Null if the test depends on all the classes
+		final Set<String> classes;
+
+		Verdict(String outcome, String fingerprint, Set<String> classes) {
+			this.outcome = outcome;
+			this.fingerprint = fingerprint;
+			this.classes = classes;
+		}
+	}
+
+	/**
+	 * What a running test has done so far
+	 */
+	static final class Dependencies {
+
+		final Set<String> classes = new TreeSet<String>();
+		boolean allClasses = false;
+		String outcome = PASSED;
+	}
+
+	// Only while PSTestRunner runs with PSTestRunner.SELECTION
+	private static volatile TestSelection active;
+
+	private final InheritableThreadLocal<Description> currentTest = new InheritableThreadLocal<Description>();
+
+	private final File file;
+
+	// Hash of what every test depends on
+	private final byte[] commonDigest;
+
+	// Hash of each class of MINESWEEPER_HOME, by name
+	private final Map<String, byte[]> classDigests;
+
+	// Verdicts of earlier runs, and those of this run, by display name
+	private final Map<String, Verdict> verdicts;
+
+	private final Map<Description, Dependencies> running = new ConcurrentHashMap<Description, Dependencies>();
+
+	// Whether each test can keep its earlier verdict
+	private final Map<String, Boolean> reusable = new ConcurrentHashMap<String, Boolean>();
+	private final Set<String> reused = new LinkedHashSet<String>();
+
+	private TestSelection(File file, byte[] commonDigest, Map<String, byte[]> classDigests,
+			Map<String, Verdict> verdicts) {
+		this.file = file;
+		this.commonDigest = commonDigest;
+		this.classDigests = classDigests;
+		this.verdicts = verdicts;
+	}
+
+	/**
+	 * Start selecting the tests to run, using the verdicts stored in the given
+	 * file.
+	 *
+	 * @param file
+	 * @param minesweeperHome the folder with the classes of Minesweeper
+	 * @param dataFolders     folders with files that the tests read, can contain
+	 *                        null
+	 * @return
+	 * @throws IOException
+	 */
+	static TestSelection activate(File file, File minesweeperHome, File... dataFolders) throws IOException {
+		MessageDigest digest = newDigest();
+		update(digest, HEADER);
+		// The tests, and whatever else is on the class path
+		for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			File classPathEntry = new File(entry);
+			if (classPathEntry.isDirectory()) {
+				updateWithFiles(digest, classPathEntry, path -> path.toString().endsWith(".class"));
+			} else {
+				update(digest, classPathEntry.getName() + ":" + classPathEntry.length() + ":"
+						+ classPathEntry.lastModified());
+			}
+		}
+		for (File dataFolder : dataFolders) {
+			if (dataFolder != null && dataFolder.isDirectory()) {
+				update(digest, "data " + dataFolder.getAbsolutePath());
+				updateWithFiles(digest, dataFolder, path -> true);
+			}
+		}
+
+		Map<String, byte[]> classDigests = new TreeMap<String, byte[]>();
+		if (minesweeperHome != null && minesweeperHome.isDirectory()) {
+			for (Path classFile : listFiles(minesweeperHome, path -> path.toString().endsWith(".class"))) {
+				String name = relativize(minesweeperHome, classFile);
+				name = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+				classDigests.put(name, newDigest().digest(Files.readAllBytes(classFile)));
+			}
+		}
+		update(digest, "classes " + String.join(",", classDigests.keySet()));
+		if (minesweeperHome != null && minesweeperHome.isDirectory()) {
+			// Other files that Minesweeper might read, but not the config.ini that the
+			// tests write before they run it
+			Path configIni = new File(minesweeperHome, "config.ini").toPath();
+			update(digest, "resources");
+			updateWithFiles(digest, minesweeperHome,
+					path -> !path.toString().endsWith(".class") && !path.equals(configIni));
+		}
+		for (String property : PROPERTIES) {
+			update(digest, property + "=" + System.getProperty(property, ""));
+		}
+
+		active = new TestSelection(file, digest.digest(), classDigests, load(file));
+		return active;
+	}
+
+	public static boolean isActive() {
+		return active != null;
+	}
+
+	/**
+	 * Record the classes of MINESWEEPER_HOME that an execution of Minesweeper
+	 * loaded, if tests are selected.
+	 *
+	 * @param loadedClasses null if the execution cannot tell, so the test depends
+	 *                      on all the classes
+	 */
+	public static void record(Collection<String> loadedClasses) {
+		TestSelection selection = active;
+		if (selection == null) {
+			return;
+		}
+		Description test = selection.currentTest.get();
+		Dependencies dependencies = test != null ? selection.running.get(test) : null;
+		if (dependencies == null) {
+			return;
+		}
+		synchronized (dependencies) {
+			if (loadedClasses == null) {
+				dependencies.allClasses = true;
+			} else {
+				dependencies.classes.addAll(loadedClasses);
+			}
+		}
+	}
+
+	/**
+	 * @return a filter that keeps the tests that must run again
+	 */
+	Filter getFilter() {
+		return new Filter() {
+
+			@Override
+			public boolean shouldRun(Description description) {
+				if (description.isTest()) {
+					return !isReusable(description);
+				}
+				for (Description child : description.getChildren()) {
+					if (shouldRun(child)) {
+						return true;
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public String describe() {
+				return "Tests that changed since they passed";
+			}
+		};
+	}
+
+	private boolean isReusable(Description test) {
+		String name = test.getDisplayName();
+		return reusable.computeIfAbsent(name, n -> {
+			Verdict verdict = verdicts.get(n);
+			boolean unchanged = verdict != null && PASSED.equals(verdict.outcome)
+					&& verdict.fingerprint.equals(fingerprint(verdict.classes));
+			if (unchanged) {
+				synchronized (reused) {
+					reused.add(n);
+				}
+			}
+			return unchanged;
+		});
+	}
+
+	/**
+	 * Print the tests that were not run because they kept their verdict.
+	 *
+	 * @param out
+	 */
+	public void report(PrintStream out) {
+		synchronized (reused) {
+			for (String name : reused) {
+				out.println("\t - Unchanged since it passed: " + name);
+			}
+			out.println("Reused the verdicts of " + reused.size() + " tests");
+		}
+	}
+
+	@Override
+	public void testStarted(Description description) {
+		currentTest.set(description);
+		running.put(description, new Dependencies());
+	}
+
+	@Override
+	public void testFailure(Failure failure) {
+		setOutcome(failure.getDescription(), FAILED);
+	}
+
+	@Override
+	public void testAssumptionFailure(Failure failure) {
+		setOutcome(failure.getDescription(), SKIPPED);
+	}
+
+	private void setOutcome(Description description, String outcome) {
+		Dependencies dependencies = running.get(description);
+		if (dependencies != null) {
+			synchronized (dependencies) {
+				dependencies.outcome = outcome;
+			}
+		}
+	}
+
+	@Override
+	public void testFinished(Description description) {
+		currentTest.remove();
+		Dependencies dependencies = running.remove(description);
+		if (dependencies == null) {
+			return;
+		}
+		synchronized (dependencies) {
+			// Failed tests run again anyway, but what they depend on helps the next runs
+			Set<String> classes = dependencies.allClasses ? null : new TreeSet<String>(dependencies.classes);
+			Verdict verdict = new Verdict(dependencies.outcome, fingerprint(classes), classes);
+			synchronized (verdicts) {
+				verdicts.put(description.getDisplayName(), verdict);
+			}
+		}
+	}
+
+	/**
+	 * Store the verdicts of this run, and those of the earlier runs that are still
+	 * valid, for the next run.
+	 *
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		lines.add(HEADER);
+		synchronized (verdicts) {
+			for (Map.Entry<String, Verdict> entry : verdicts.entrySet()) {
+				Verdict verdict = entry.getValue();
+				lines.add(verdict.outcome + "\t" + verdict.fingerprint + "\t"
+						+ (verdict.classes == null ? ALL_CLASSES : String.join(",", verdict.classes)) + "\t"
+						+ entry.getKey());
+			}
+		}
+		File parent = file.getAbsoluteFile().getParentFile();
+		parent.mkdirs();
+		Path temp = Files.createTempFile(parent.toPath(), file.getName(), ".tmp");
+		try {
+			Files.write(temp, lines, StandardCharsets.UTF_8);
+			Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static Map<String, Verdict> load(File file) throws IOException {
+		Map<String, Verdict> verdicts = new LinkedHashMap<String, Verdict>();
+		if (!file.isFile()) {
+			return verdicts;
+		}
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+			// Written by another version, start over
+			return verdicts;
+		}
+		for (String line : lines.subList(1, lines.size())) {
+			String[] fields = line.split("\t", 4);
+			if (fields.length < 4) {
+				continue;
+			}
+			Set<String> classes = null;
+			if (!ALL_CLASSES.equals(fields[2])) {
+				classes = new TreeSet<String>();
+				if (!fields[2].isEmpty()) {
+					classes.addAll(Arrays.asList(fields[2].split(",")));
+				}
+			}
+			verdicts.put(fields[3], new Verdict(fields[0], fields[1], classes));
+		}
+		return verdicts;
+	}
+
+	/**
+	 * Hash what a test depends on: the common digest and the content of the given
+	 * classes.
+	 *
+	 * @param classes null for all the classes
+	 * @return
+	 */
+	private String fingerprint(Set<String> classes) {
+		MessageDigest digest = newDigest();
+		digest.update(commonDigest);
+		for (String name : classes == null ? classDigests.keySet() : classes) {
+			update(digest, name);
+			byte[] classDigest = classDigests.get(name);
+			// A class that is gone
+			digest.update(classDigest != null ? classDigest : new byte[0]);
+		}
+		StringBuilder fingerprint = new StringBuilder();
+		for (byte b : Arrays.copyOf(digest.digest(), 16)) {
+			fingerprint.append(String.format("%02x", b));
+		}
+		return fingerprint.toString();
+	}
+
+	private static void updateWithFiles(MessageDigest digest, File folder, Predicate<Path> filter)
+			throws IOException {
+		for (Path path : listFiles(folder, filter)) {
+			update(digest, relativize(folder, path));
+			digest.update(Files.readAllBytes(path));
+		}
+	}
+
+	private static List<Path> listFiles(File folder, Predicate<Path> filter) throws IOException {
+		try (Stream<Path> paths = Files.walk(folder.toPath())) {
+			return paths.filter(path -> Files.isRegularFile(path) && filter.test(path)).sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static String relativize(File folder, Path path) {
+		return folder.toPath().relativize(path).toString().replace(File.separatorChar, '/');
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every JVM has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Prefix the length, so the boundaries between the parts are part of the hash
+	private static void update(MessageDigest digest, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+		digest.update(bytes);
+	}
+}